@@ -6,6 +6,8 @@ module pk.wieik.raidjavafx {
     requires net.synedra.validatorfx;
     requires org.kordamp.bootstrapfx.core;
 
+    requires jdk.jfr;
+
     opens pk.wieik.raidjavafx to javafx.fxml;
     exports pk.wieik.raidjavafx;
 }
\ No newline at end of file
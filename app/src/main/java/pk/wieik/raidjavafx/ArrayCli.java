@@ -0,0 +1,379 @@
+package pk.wieik.raidjavafx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Non-interactive front end for arrays of file-backed discs kept in a directory, for scripts and
+ * throughput runs. Data goes through files or stdin/stdout and is streamed one stripe at a time,
+ * status lines go to stderr. The exit code is 0 on success, 1 when the operation failed or verify
+ * found mismatches and 2 on a usage error.
+ */
+public class ArrayCli {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: ConsoleSim <command> <directory> [options]",
+            "  create <dir> --discs N [--chunk-size BYTES]   create an empty array",
+            "  write <dir> [--input FILE|-]                  replace the contents, from stdin by default",
+            "  read <dir> [--output FILE|-]                  read the contents, to stdout by default",
+            "  fail <dir> --disc I [--truncate]              simulate the failure of disc I",
+            "  rebuild <dir>                                 rebuild the failed disc",
+            "  verify <dir> [--repair]                       check the parity of every stripe",
+            "  grow <dir>                                    add a disc and restripe onto it, or resume doing so",
+            "  info <dir>                                    show layout, size and state");
+
+    private static final Set<String> FLAGS = Set.of("--truncate", "--repair");
+
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    private ArrayCli(InputStream in, PrintStream out, PrintStream err) {
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+        return new ArrayCli(in, out, err).run(args);
+    }
+
+    private int run(String[] args) {
+        if (args.length < 2) {
+            err.println(USAGE);
+            return 2;
+        }
+        String command = args[0];
+        Path directory = Paths.get(args[1]);
+        Map<String, String> options = new HashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            if (FLAGS.contains(args[i])) {
+                options.put(args[i], "true");
+            } else if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i], args[++i]);
+            } else {
+                err.println("Unexpected argument: " + args[i]);
+                err.println(USAGE);
+                return 2;
+            }
+        }
+
+        try {
+            switch (command) {
+                case "create":
+                    return create(directory, options);
+                case "write":
+                    return write(directory, options);
+                case "read":
+                    return read(directory, options);
+                case "fail":
+                    return fail(directory, options);
+                case "rebuild":
+                    return rebuild(directory);
+                case "verify":
+                    return verify(directory, options);
+                case "grow":
+                    return grow(directory);
+                case "info":
+                    return info(directory);
+                default:
+                    err.println("Unknown command: " + command);
+                    err.println(USAGE);
+                    return 2;
+            }
+        } catch (UsageException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        } catch (IOException | UncheckedIOException | IllegalArgumentException | IllegalStateException e) {
+            err.println(command + " failed: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private int create(Path directory, Map<String, String> options) throws IOException {
+        int numberOfDiscs = intOption(options, "--discs", -1);
+        if (numberOfDiscs < 0) {
+            throw new UsageException("create needs --discs");
+        }
+        int chunkSize = intOption(options, "--chunk-size", StripeLayout.DEFAULT_CHUNK_SIZE);
+        ArrayMetadata metadata = new ArrayMetadata(numberOfDiscs, chunkSize);
+        close(Cluster.createDiscArray(directory, metadata.getLayout(), 0));
+        openIntent(directory).close();
+        metadata.store(directory);
+        err.println("Created " + metadata.getLayout() + " in " + directory);
+        return 0;
+    }
+
+    private int write(Path directory, Map<String, String> options) throws IOException {
+        ArrayMetadata metadata = ArrayMetadata.load(directory);
+        checkNotReshaping(directory);
+        String input = options.getOrDefault("--input", "-");
+        MappedDisc[] discs = Cluster.openDiscArray(directory, metadata.getNumberOfDiscs());
+        long start = System.nanoTime();
+        long bytes;
+        try (WriteIntentBitmap intent = openIntent(directory);
+             InputStream source = input.equals("-") ? new BufferedInputStream(in) : Files.newInputStream(Paths.get(input))) {
+            bytes = Cluster.saveData(source, discs, metadata.getLayout(), intent);
+            intent.clean(() -> force(discs));
+        } finally {
+            close(discs);
+        }
+        // Every disc was written in full, including one that had failed
+        metadata.setDataSize(bytes);
+        metadata.setFailedDisc(-1);
+        metadata.store(directory);
+        report("Wrote", bytes, start);
+        return 0;
+    }
+
+    private int read(Path directory, Map<String, String> options) throws IOException {
+        ArrayMetadata metadata = ArrayMetadata.load(directory);
+        String output = options.getOrDefault("--output", "-");
+        MappedDisc[] discs = open(directory, metadata);
+        long start = System.nanoTime();
+        long bytes;
+        try (OutputStream target = output.equals("-") ? new BufferedOutputStream(new NonClosingStream(out), 1 << 16)
+                : Files.newOutputStream(Paths.get(output))) {
+            bytes = Cluster.readData(discs, metadata.getLayout(), metadata.getDataSize(), target);
+        } finally {
+            close(discs);
+        }
+        report("Read", bytes, start);
+        return 0;
+    }
+
+    private int fail(Path directory, Map<String, String> options) throws IOException {
+        ArrayMetadata metadata = ArrayMetadata.load(directory);
+        int discIndex = intOption(options, "--disc", -1);
+        if (discIndex < 0 || discIndex >= metadata.getNumberOfDiscs()) {
+            throw new UsageException("fail needs --disc between 0 and " + (metadata.getNumberOfDiscs() - 1));
+        }
+        if (metadata.getFailedDisc() >= 0 && metadata.getFailedDisc() != discIndex) {
+            throw new IllegalStateException("Disc " + metadata.getFailedDisc() + " has already failed, rebuild it first");
+        }
+        MappedDisc[] discs = open(directory, metadata);
+        try {
+            Cluster.simulateDamage(new Disc(discIndex), discs, options.containsKey("--truncate"));
+        } finally {
+            close(discs);
+        }
+        metadata.setFailedDisc(discIndex);
+        metadata.store(directory);
+        err.println("Disc " + discIndex + " failed");
+        return 0;
+    }
+
+    private int rebuild(Path directory) throws IOException {
+        ArrayMetadata metadata = ArrayMetadata.load(directory);
+        int discIndex = metadata.getFailedDisc();
+        if (discIndex < 0) {
+            err.println("No disc has failed");
+            return 0;
+        }
+        MappedDisc[] discs = open(directory, metadata);
+        long start = System.nanoTime();
+        try {
+            Cluster.recoverData(discs, discIndex, metadata.getLayout());
+        } finally {
+            close(discs);
+        }
+        metadata.setFailedDisc(-1);
+        metadata.store(directory);
+        report("Rebuilt disc " + discIndex + ",", discs[discIndex].size() / 8, start);
+        return 0;
+    }
+
+    private int verify(Path directory, Map<String, String> options) throws IOException {
+        ArrayMetadata metadata = ArrayMetadata.load(directory);
+        if (metadata.getFailedDisc() >= 0) {
+            throw new IllegalStateException("Disc " + metadata.getFailedDisc() + " has failed, rebuild it first");
+        }
+        MappedDisc[] discs = open(directory, metadata);
+        ParityScrubber scrubber;
+        try {
+            scrubber = new ParityScrubber(new RaidArray(discs, metadata.getLayout()), 0, options.containsKey("--repair"));
+            scrubber.scrub();
+        } finally {
+            close(discs);
+        }
+        for (long stripe : scrubber.getMismatches()) {
+            out.println("Parity mismatch in stripe " + stripe);
+        }
+        err.println(scrubber.getStripesChecked() + " stripes checked, " + scrubber.getMismatches().size()
+                + " mismatches, " + scrubber.getRepaired() + " repaired");
+        return scrubber.getMismatches().size() > scrubber.getRepaired() ? 1 : 0;
+    }
+
+    // Resumes the reshape the journal records, if any, so that an interrupted grow is finished by
+    // running it again. The metadata tells the new number of discs from the moment the reshape
+    // started; the other commands refuse to run until it is done.
+    private int grow(Path directory) throws IOException {
+        ArrayMetadata metadata = ArrayMetadata.load(directory);
+        if (metadata.getFailedDisc() >= 0) {
+            throw new IllegalStateException("Disc " + metadata.getFailedDisc() + " has failed, rebuild it first");
+        }
+        long start = System.nanoTime();
+        MappedDisc[] discs;
+        long capacity;
+        try (ReshapeJournal journal = ReshapeJournal.open(ReshapeJournal.file(directory))) {
+            if (journal.isActive()) {
+                discs = Cluster.openDiscArray(directory, journal.getOldLayout().getNumberOfDiscs() + 1);
+                err.println("Resuming the reshape from stripe " + journal.getCheckpoint());
+            } else {
+                discs = Arrays.copyOf(open(directory, metadata), metadata.getNumberOfDiscs() + 1);
+            }
+            try {
+                RaidArray array;
+                if (journal.isActive()) {
+                    array = RaidArray.resumeReshape(discs, journal);
+                } else {
+                    int added = metadata.getNumberOfDiscs();
+                    discs[added] = MappedDisc.create(Cluster.discFile(directory, added), 0);
+                    array = new RaidArray(Arrays.copyOf(discs, added), metadata.getLayout());
+                    array.startReshape(discs[added], journal);
+                }
+                ArrayMetadata grown = new ArrayMetadata(discs.length, metadata.getChunkSize());
+                grown.setDataSize(metadata.getDataSize());
+                grown.store(directory);
+                array.continueReshape();
+                capacity = array.capacity();
+            } finally {
+                close(Arrays.stream(discs).filter(disc -> disc != null).toArray(MappedDisc[]::new));
+            }
+        }
+        report("Reshaped onto " + discs.length + " discs,", capacity, start);
+        return 0;
+    }
+
+    private int info(Path directory) throws IOException {
+        ArrayMetadata metadata = ArrayMetadata.load(directory);
+        StripeLayout layout = metadata.getLayout();
+        out.println("Layout: " + layout);
+        out.println("Data: " + metadata.getDataSize() + " bytes in " + layout.stripeCount(metadata.getDataSize()) + " stripes");
+        out.println("Failed disc: " + (metadata.getFailedDisc() >= 0 ? Integer.toString(metadata.getFailedDisc()) : "none"));
+        long reshaped = reshapeCheckpoint(directory);
+        if (reshaped >= 0) {
+            out.println("Reshape: interrupted at stripe " + reshaped + ", run grow to finish it");
+        }
+        return 0;
+    }
+
+    // Stripes done by a reshape that has not finished, or -1
+    private static long reshapeCheckpoint(Path directory) throws IOException {
+        if (!Files.exists(ReshapeJournal.file(directory))) {
+            return -1;
+        }
+        try (ReshapeJournal journal = ReshapeJournal.open(ReshapeJournal.file(directory))) {
+            return journal.isActive() ? journal.getCheckpoint() : -1;
+        }
+    }
+
+    private static void checkNotReshaping(Path directory) throws IOException {
+        if (reshapeCheckpoint(directory) >= 0) {
+            throw new IllegalStateException("A reshape of the array was interrupted, run grow to finish it");
+        }
+    }
+
+    // Opens the discs and marks the failed one, which MappedDisc does not remember by itself.
+    // Stripes a write was interrupted in get their parity back first.
+    private MappedDisc[] open(Path directory, ArrayMetadata metadata) throws IOException {
+        checkNotReshaping(directory);
+        MappedDisc[] discs = Cluster.openDiscArray(directory, metadata.getNumberOfDiscs());
+        if (metadata.getFailedDisc() >= 0) {
+            discs[metadata.getFailedDisc()].setFailed(true);
+        }
+        try (WriteIntentBitmap intent = openIntent(directory)) {
+            if (!intent.isClean()) {
+                if (metadata.getFailedDisc() >= 0) {
+                    err.println("Warning: " + intent.dirtyRegions() + " regions were being written when disc "
+                            + metadata.getFailedDisc() + " failed and may hold wrong data");
+                } else {
+                    long stripes = intent.resync(discs, metadata.getLayout());
+                    err.println("Resynced " + stripes + " stripes left by an interrupted write");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close(discs);
+            throw e;
+        }
+        return discs;
+    }
+
+    private static WriteIntentBitmap openIntent(Path directory) throws IOException {
+        return WriteIntentBitmap.open(WriteIntentBitmap.file(directory), WriteIntentBitmap.DEFAULT_REGION_STRIPES);
+    }
+
+    private static void force(DiscStore[] discs) {
+        for (DiscStore disc : discs) {
+            disc.force();
+        }
+    }
+
+    private static void close(MappedDisc[] discs) throws IOException {
+        IOException failure = null;
+        for (MappedDisc disc : discs) {
+            try {
+                disc.close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void report(String what, long bytes, long start) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        err.printf("%s %d bytes in %.3f s (%.1f MB/s)%n", what, bytes, seconds, bytes / seconds / 1e6);
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException(name + " needs a number, got " + value);
+        }
+    }
+
+    private static final class UsageException extends RuntimeException {
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    // Lets the read close its buffered stream without closing stdout
+    private static final class NonClosingStream extends FilterOutputStream {
+        NonClosingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package pk.wieik.raidjavafx;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering one array operation, enabled with e.g.
+ * {@code -XX:StartFlightRecording}. The same start/finish pair feeds Metrics, so call sites only
+ * deal with one object. While neither JFR nor Metrics is recording, begin, end and shouldCommit
+ * compile to almost nothing and the event does not escape, so it is not allocated either.
+ */
+@Name("pk.wieik.raidjavafx.ArrayOperation")
+@Label("RAID5 Array Operation")
+@Category("RAID5")
+@Description("Save, parity pass, read, write, rebuild, scrub or reshape of a RAID5 array")
+@StackTrace(false)
+public final class ArrayEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Bytes")
+    @Description("Bytes processed, data and parity")
+    @DataAmount
+    long bytes;
+
+    @Label("Stripes")
+    @Description("Stripes (or rows of the bit layout) touched")
+    long stripes;
+
+    @Label("Reconstructed")
+    @Description("Chunks (or bits) of a failed disc rebuilt from parity while reading")
+    long reconstructed;
+
+    @Label("Disc")
+    @Description("Disc being rebuilt, or -1")
+    int discIndex = -1;
+
+    private transient Metrics.Operation kind;
+    private transient long startNanos;
+
+    static ArrayEvent start(Metrics.Operation kind) {
+        ArrayEvent event = new ArrayEvent();
+        event.kind = kind;
+        event.begin();
+        if (Metrics.isEnabled()) {
+            event.startNanos = System.nanoTime();
+        }
+        return event;
+    }
+
+    ArrayEvent disc(int discIndex) {
+        this.discIndex = discIndex;
+        return this;
+    }
+
+    void finish(long bytes, long stripes, long reconstructed) {
+        end();
+        if (Metrics.isEnabled()) {
+            Metrics.record(kind, System.nanoTime() - startNanos, bytes, stripes, reconstructed);
+        }
+        if (shouldCommit()) {
+            this.operation = kind.name();
+            this.bytes = bytes;
+            this.stripes = stripes;
+            this.reconstructed = reconstructed;
+            commit();
+        }
+    }
+}
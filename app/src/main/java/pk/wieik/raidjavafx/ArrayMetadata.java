@@ -0,0 +1,102 @@
+package pk.wieik.raidjavafx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * What a directory of file-backed discs does not tell by itself: the layout, how many bytes of
+ * data the array holds and which disc, if any, has failed. Kept as array.properties next to the
+ * disc files and replaced atomically on every change.
+ */
+public class ArrayMetadata {
+    public static final String FILE_NAME = "array.properties";
+
+    private final int numberOfDiscs;
+    private final int chunkSize;
+    private long dataSize;
+    private int failedDisc = -1;
+
+    public ArrayMetadata(int numberOfDiscs, int chunkSize) {
+        // Fails early on a layout the array could not use
+        new StripeLayout(numberOfDiscs, chunkSize);
+        this.numberOfDiscs = numberOfDiscs;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getNumberOfDiscs() {
+        return numberOfDiscs;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public StripeLayout getLayout() {
+        return new StripeLayout(numberOfDiscs, chunkSize);
+    }
+
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    public void setDataSize(long dataSize) {
+        this.dataSize = dataSize;
+    }
+
+    /**
+     * Index of the failed disc, or -1.
+     */
+    public int getFailedDisc() {
+        return failedDisc;
+    }
+
+    public void setFailedDisc(int failedDisc) {
+        this.failedDisc = failedDisc;
+    }
+
+    public static Path file(Path directory) {
+        return directory.resolve(FILE_NAME);
+    }
+
+    public static ArrayMetadata load(Path directory) throws IOException {
+        Path file = file(directory);
+        if (!Files.exists(file)) {
+            throw new NoSuchFileException(file.toString(), null, "not a disc array directory");
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        try {
+            ArrayMetadata metadata = new ArrayMetadata(
+                    Integer.parseInt(properties.getProperty("discs")),
+                    Integer.parseInt(properties.getProperty("chunkSize")));
+            metadata.setDataSize(Long.parseLong(properties.getProperty("dataSize", "0")));
+            metadata.setFailedDisc(Integer.parseInt(properties.getProperty("failedDisc", "-1")));
+            return metadata;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt array metadata in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public void store(Path directory) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("discs", Integer.toString(numberOfDiscs));
+        properties.setProperty("chunkSize", Integer.toString(chunkSize));
+        properties.setProperty("dataSize", Long.toString(dataSize));
+        properties.setProperty("failedDisc", Integer.toString(failedDisc));
+
+        Path file = file(directory);
+        Path temp = directory.resolve(FILE_NAME + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "RAID5 disc array");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,120 @@
+package pk.wieik.raidjavafx;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C of every chunk of a striped array, 4 bytes per chunk kept next to the discs. Parity only
+ * tells that a stripe is inconsistent; the checksums also tell which chunk is wrong, so it can be
+ * reconstructed from the other chunks of its stripe alone instead of rebuilding the whole disc.
+ * CRC32C is computed with the CPU's CRC instructions where the JVM has an intrinsic for them.
+ *
+ * <p>The table is not persisted: compute trusts whatever the discs hold at that moment. Callers
+ * keep it up to date after each write and serialize access per stripe, as RaidArray does.
+ */
+public class ChunkChecksums {
+
+    private final StripeLayout layout;
+    // checksums[disc][stripe]
+    private int[][] checksums;
+    private final LongAdder repaired = new LongAdder();
+    // Every write and verified read checksums a chunk; stripes are locked separately, so each
+    // thread keeps its own chunk buffer instead of allocating one per call
+    private final ThreadLocal<byte[]> buffers;
+
+    public ChunkChecksums(StripeLayout layout) {
+        this.layout = layout;
+        this.checksums = new int[layout.getNumberOfDiscs()][0];
+        this.buffers = ThreadLocal.withInitial(() -> new byte[layout.getChunkSize()]);
+    }
+
+    /**
+     * Chunks reconstructed because their checksum did not match.
+     */
+    public long getRepaired() {
+        return repaired.sum();
+    }
+
+    public long getStripes() {
+        return checksums[0].length;
+    }
+
+    /**
+     * Recomputes the checksum of every chunk, sizing the table to the discs.
+     */
+    public void compute(DiscStore[] discs) {
+        int stripes = Math.toIntExact(discs[0].size() / 8 / layout.getChunkSize());
+        checksums = new int[discs.length][stripes];
+        byte[] chunk = buffers.get();
+        for (int disc = 0; disc < discs.length; disc++) {
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                checksums[disc][stripe] = checksum(discs[disc], stripe, chunk);
+            }
+        }
+    }
+
+    /**
+     * Stores the checksum of the chunk of one disc after it was written.
+     */
+    public void update(DiscStore[] discs, long stripe, int discIndex) {
+        checksums[discIndex][(int) stripe] = checksum(discs[discIndex], stripe, buffers.get());
+    }
+
+    /**
+     * Whether the chunk of one disc still has the checksum it was written with.
+     */
+    public boolean verify(DiscStore[] discs, long stripe, int discIndex) {
+        return checksums[discIndex][(int) stripe] == checksum(discs[discIndex], stripe, buffers.get());
+    }
+
+    /**
+     * Returns the first disc of the stripe whose chunk fails verification, or -1. Failed discs are
+     * not checked, their chunks are reconstructed on every read anyway.
+     */
+    public int findCorrupt(DiscStore[] discs, long stripe) {
+        for (int disc = 0; disc < discs.length; disc++) {
+            if (!discs[disc].isFailed() && !verify(discs, stripe, disc)) {
+                return disc;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reconstructs the chunk of one disc from the other chunks of its stripe. The result is only
+     * written when it matches the stored checksum, so a stripe with more than one bad chunk is left
+     * alone and reported with an IllegalStateException.
+     */
+    public void repair(DiscStore[] discs, long stripe, int discIndex) {
+        int failedIndex = Cluster.failedDisc(discs);
+        if (failedIndex >= 0 && failedIndex != discIndex) {
+            throw new IllegalStateException("Chunk of disc " + discIndex + " in stripe " + stripe
+                    + " is corrupt and disc " + failedIndex + " failed, data is lost");
+        }
+        int chunkWords = layout.getChunkWords();
+        long chunkIndex = stripe * chunkWords;
+        long[] chunk = new long[chunkWords];
+        for (int j = 0; j < discs.length; j++) {
+            if (j != discIndex) {
+                discs[j].xorWords(chunkIndex, chunk, 0, chunkWords);
+            }
+        }
+
+        byte[] bytes = buffers.get();
+        ParityEngine.copy(chunk, 0, bytes, 0, bytes.length);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        if ((int) crc.getValue() != checksums[discIndex][(int) stripe]) {
+            throw new IllegalStateException("Stripe " + stripe + " has more than one corrupt chunk, data is lost");
+        }
+        discs[discIndex].writeWords(chunkIndex, chunk, 0, chunkWords);
+        repaired.increment();
+    }
+
+    private int checksum(DiscStore disc, long stripe, byte[] chunk) {
+        disc.readBytes(stripe * layout.getChunkSize(), chunk, 0, chunk.length);
+        CRC32C crc = new CRC32C();
+        crc.update(chunk, 0, chunk.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,1263 @@
+package pk.wieik.raidjavafx;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class Cluster {
+    // How often the packed operations report progress
+    private static final int PROGRESS_ROWS = 1 << 18;
+    private static final int PROGRESS_WORDS = PROGRESS_ROWS / 64;
+
+    /**
+     * Simulates a disk failure by removing the specified disk and adding a new empty disk in its place.
+     */
+    public static void simulateDamage(Disc discNew, List<List<Bit>> listOfDiscs) {
+        int discIndex = discNew.getDamagedDiscIndex();
+        listOfDiscs.remove(discIndex);
+        List<Bit> newDisc = new ArrayList<>(
+                Collections.nCopies(listOfDiscs.get(0).size(), new Bit(false)));
+        listOfDiscs.add(discIndex, newDisc);
+    }
+
+    /**
+     * Calculates and stores the parity bits for RAID5.
+     */
+    public static void sumControl(List<List<Bit>> listOfDiscs) {
+        int numberOfDiscs = listOfDiscs.size();
+        int dataSize = listOfDiscs.get(0).size();
+        int[] rotation = StripeLayout.rotationTable(numberOfDiscs);
+
+        for (int i = 0, phase = 0; i < dataSize; i++, phase = nextPhase(phase, rotation)) {
+            // Alternate skipIndex to distribute parity bits across disks
+            int skipIndex = rotation[phase];
+            boolean parityBit = false;
+            for (int j = 0; j < numberOfDiscs; j++) {
+                if (j != skipIndex) {
+                    boolean dataBit = listOfDiscs.get(j).get(i).getBit();
+                    parityBit ^= dataBit; // XOR operation for parity calculation
+                }
+            }
+            Bit parityBitObj = new Bit(parityBit);
+            parityBitObj.setParityBit(true);
+            listOfDiscs.get(skipIndex).set(i, parityBitObj);
+        }
+    }
+
+    /**
+     * Saves the data and calculates the parity for RAID5.
+     */
+    public static void saveData(List<Bit> list, List<List<Bit>> listOfDiscs) {
+        int numberOfDiscs = listOfDiscs.size();
+        int dataLength = list.size();
+        int totalLength = dataLength + (numberOfDiscs - 1 - (dataLength % (numberOfDiscs - 1)));
+
+        for (int i = dataLength; i < totalLength; i++) {
+            list.add(new Bit(false));
+        }
+
+        int currentIndex = 0;
+        int[] rotation = StripeLayout.rotationTable(numberOfDiscs);
+        int phase = 0;
+
+        while (currentIndex < totalLength) {
+            int currentIterationStartIndex = currentIndex;
+            int skipIndex = rotation[phase];
+            for (int i = 0; i < numberOfDiscs; i++) {
+                if (i == skipIndex) {
+                    listOfDiscs.get(i).add(new Bit(false));
+                } else {
+                    if (currentIndex < totalLength) {
+                        Bit bit = list.get(currentIndex);
+                        listOfDiscs.get(i).add(bit);
+                        currentIndex++;
+                    }
+                }
+            }
+
+            if (currentIndex == currentIterationStartIndex) {
+                break;
+            }
+
+            // Alternate skipIndex to distribute parity bits across disks
+            phase = nextPhase(phase, rotation);
+        }
+
+        // Remove extra padding if the data length is a multiple of (numberOfDiscs - 1)
+        if (dataLength % (listOfDiscs.size() - 1) == 0) {
+            for (List<Bit> disc : listOfDiscs) {
+                disc.remove(disc.size() - 1);
+            }
+        }
+
+        // Calculate and store the parity bits
+        sumControl(listOfDiscs);
+    }
+
+    /**
+     * Next step of the parity walk. Loops use StripeLayout.parityDisc or a rotation table instead,
+     * which give the same positions without stepping from the first row.
+     */
+    public static Result adjustSkipIndex(int skipIndex, int numberOfDiscs, boolean decrementing) {
+        if (decrementing) {
+            skipIndex--;
+            if (skipIndex < 0) {
+                skipIndex = 1;
+                decrementing = false;
+            }
+        } else {
+            skipIndex++;
+            if (skipIndex >= numberOfDiscs) {
+                skipIndex = numberOfDiscs - 2;
+                decrementing = true;
+            }
+        }
+        return new Result(skipIndex,decrementing);
+    }
+
+    // Index into a rotation table for the next row or stripe
+    private static int nextPhase(int phase, int[] rotation) {
+        return phase + 1 == rotation.length ? 0 : phase + 1;
+    }
+
+    public static class Result {
+        public int skipIndex;
+        public boolean decrementing;
+
+        public Result(int skipIndex, boolean decrementing) {
+            this.skipIndex = skipIndex;
+            this.decrementing = decrementing;
+        }
+    }
+
+    /**
+     * Creates a list of empty disks.
+     */
+    public static List<List<Bit>> createDiscList(Disc disc) {
+        List<List<Bit>> listOfDiscs = new ArrayList<>();
+        int numberOfDiscs = disc.getNumberOfDiscs();
+        for (int i = 0; i < numberOfDiscs; i++) {
+            List<Bit> list = new ArrayList<>();
+            listOfDiscs.add(list);
+        }
+        return listOfDiscs;
+    }
+
+    /**
+     * Converts the input data string to a list of Bits.
+     */
+    public static List<Bit> toList(Disc disc) {
+        String data = disc.getData();
+        List<Bit> list = new ArrayList<>();
+
+        for (int i = 0; i < data.length(); i++) {
+            char character = data.charAt(i);
+            list.add(new Bit(character == '1'));
+        }
+        return list;
+    }
+
+    public static List<Bit> readData(List<List<Bit>> listOfDiscs, int originalDataSize) {
+        List<Bit> recoveredData = new ArrayList<>();
+        int numberOfDiscs = listOfDiscs.size();
+        int[] rotation = StripeLayout.rotationTable(numberOfDiscs);
+        int phase = 0;
+
+        int currentIndex = 0;
+        while (recoveredData.size() < originalDataSize) {
+            int skipIndex = rotation[phase];
+            for (int i = 0; i < numberOfDiscs; i++) {
+                if (i != skipIndex && currentIndex < listOfDiscs.get(i).size()) {
+                    recoveredData.add(listOfDiscs.get(i).get(currentIndex));
+                    if (recoveredData.size() == originalDataSize) {
+                        break;
+                    }
+                }
+            }
+
+            currentIndex++;
+            phase = nextPhase(phase, rotation);
+        }
+
+        // Remove padding false values
+        while (recoveredData.size() > originalDataSize) {
+            recoveredData.remove(recoveredData.size() - 1);
+        }
+        return recoveredData;
+    }
+
+    public static List<Bit> recoverData(List<List<Bit>> listOfDiscs, int discIndex, int originalDataSize) {
+        int numberOfDiscs = listOfDiscs.size();
+        int dataSize = listOfDiscs.get(0).size();
+
+        // List to store recovered data
+        List<Bit> recoveredData = new ArrayList<>(dataSize);
+
+        // Calculate parity bit for each index
+        for (int i = 0; i < dataSize; i++) {
+            boolean parityBit = false;
+            for (int j = 0; j < numberOfDiscs; j++) {
+                if (j != discIndex) {
+                    boolean dataBit = listOfDiscs.get(j).get(i).getBit();
+                    parityBit ^= dataBit;
+                }
+            }
+            // Set the recovered bit based on parity
+            Bit bit = new Bit(parityBit);
+            recoveredData.add(bit);
+        }
+
+        listOfDiscs.set(discIndex, recoveredData);
+        sumControl(listOfDiscs);
+        recoveredData = listOfDiscs.get(discIndex);
+        return recoveredData;
+    }
+
+    /**
+     * Creates an array of empty packed disks.
+     */
+    public static PackedDisc[] createDiscArray(Disc disc) {
+        int numberOfDiscs = disc.getNumberOfDiscs();
+        PackedDisc[] discs = new PackedDisc[numberOfDiscs];
+        for (int i = 0; i < numberOfDiscs; i++) {
+            discs[i] = new PackedDisc();
+        }
+        return discs;
+    }
+
+    /**
+     * Converts the input data string to packed bits.
+     */
+    public static PackedDisc toPackedDisc(Disc disc) {
+        String data = disc.getData();
+        PackedDisc bits = new PackedDisc(data.length());
+
+        for (int i = 0; i < data.length(); i++) {
+            if (data.charAt(i) == '1') {
+                bits.setBit(i, true);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Simulates a disk failure on packed disks by replacing the specified disk with an empty one.
+     */
+    public static void simulateDamage(Disc discNew, PackedDisc[] discs) {
+        int discIndex = discNew.getDamagedDiscIndex();
+        long dataSize = discs[discIndex == 0 ? 1 : 0].size();
+        discs[discIndex] = new PackedDisc(dataSize);
+        discs[discIndex].setFailed(true);
+    }
+
+    /**
+     * Calculates and stores the parity bits for RAID5 on packed disks, 64 rows per XOR.
+     * Parity positions are taken from the disks' parity bitmaps written by saveData.
+     */
+    public static void sumControl(PackedDisc[] discs) {
+        sumControl(discs, ProgressListener.NONE, 0, discs[0].size());
+    }
+
+    // Reports rows done as doneBefore + row, out of total
+    private static void sumControl(PackedDisc[] discs, ProgressListener progress, long doneBefore, long total) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.PARITY);
+        long[][] words = wordsOf(discs);
+        long[][] parityWords = parityWordsOf(discs);
+        int wordCount = discs[0].wordCount();
+        for (int from = 0; from < wordCount; from += PROGRESS_WORDS) {
+            int to = Math.min(wordCount, from + PROGRESS_WORDS);
+            sumControlWords(words, parityWords, from, to);
+            progress.progress(doneBefore + Math.min(discs[0].size(), to * 64L), total);
+        }
+        event.finish(wordCount * 8L * discs.length, discs[0].size(), 0);
+    }
+
+    /**
+     * Same as sumControl(discs), with blocks of words spread over the pool's workers.
+     * Use new ForkJoinPool(n) to choose the parallelism level.
+     */
+    public static void sumControl(PackedDisc[] discs, ForkJoinPool pool) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.PARITY);
+        long[][] words = wordsOf(discs);
+        long[][] parityWords = parityWordsOf(discs);
+        RangeTask.run(pool, 0, discs[0].wordCount(), ParityEngine.BLOCK_WORDS,
+                (from, to) -> sumControlWords(words, parityWords, (int) from, (int) to));
+        event.finish(discs[0].wordCount() * 8L * discs.length, discs[0].size(), 0);
+    }
+
+    private static void sumControlWords(long[][] words, long[][] parityWords, int fromWord, int toWord) {
+        long[] parity = new long[Math.min(ParityEngine.BLOCK_WORDS, toWord - fromWord)];
+
+        for (int from = fromWord; from < toWord; from += ParityEngine.BLOCK_WORDS) {
+            int length = Math.min(ParityEngine.BLOCK_WORDS, toWord - from);
+            Arrays.fill(parity, 0, length, 0L);
+            // XOR of every disk per row, including the old parity bit
+            for (long[] disc : words) {
+                ParityEngine.xor(disc, from, parity, 0, length);
+            }
+            // Old parity XOR the whole row leaves the XOR of the data bits, written only where
+            // the disk holds the parity bit of that row
+            for (int j = 0; j < words.length; j++) {
+                ParityEngine.xorMasked(parity, 0, parityWords[j], words[j], from, length);
+            }
+        }
+    }
+
+    private static long[][] wordsOf(PackedDisc[] discs) {
+        long[][] words = new long[discs.length][];
+        for (int i = 0; i < discs.length; i++) {
+            words[i] = discs[i].words();
+        }
+        return words;
+    }
+
+    // Fetched up front because the bitmaps are allocated lazily
+    private static long[][] parityWordsOf(PackedDisc[] discs) {
+        long[][] parityWords = new long[discs.length][];
+        for (int i = 0; i < discs.length; i++) {
+            parityWords[i] = discs[i].parityWords();
+        }
+        return parityWords;
+    }
+
+    /**
+     * Saves packed data and calculates the parity for RAID5. Existing disk contents are replaced.
+     */
+    public static void saveData(PackedDisc data, PackedDisc[] discs) {
+        saveData(data, discs, ProgressListener.NONE);
+    }
+
+    /**
+     * Same as saveData(data, discs), reporting rows laid out and then rows given their parity, out
+     * of twice the number of rows. Cancelled part way, the discs hold an incomplete array.
+     */
+    public static void saveData(PackedDisc data, PackedDisc[] discs, ProgressListener progress) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.SAVE);
+        int numberOfDiscs = discs.length;
+        long dataLength = data.size();
+        // One row per (numberOfDiscs - 1) data bits, the last row padded with zeros
+        long rows = (dataLength + numberOfDiscs - 2) / (numberOfDiscs - 1);
+
+        for (PackedDisc disc : discs) {
+            disc.setSize(0);
+            disc.setSize(rows);
+        }
+
+        long currentIndex = 0;
+        int[] rotation = StripeLayout.rotationTable(numberOfDiscs);
+        int phase = 0;
+
+        for (long row = 0; row < rows; row++) {
+            int skipIndex = rotation[phase];
+            for (int i = 0; i < numberOfDiscs; i++) {
+                if (i == skipIndex) {
+                    discs[i].setParityBit(row, true);
+                } else {
+                    if (currentIndex < dataLength && data.getBit(currentIndex)) {
+                        discs[i].setBit(row, true);
+                    }
+                    currentIndex++;
+                }
+            }
+
+            // Alternate skipIndex to distribute parity bits across disks
+            phase = nextPhase(phase, rotation);
+            if ((row & (PROGRESS_ROWS - 1)) == PROGRESS_ROWS - 1) {
+                progress.progress(row + 1, 2 * rows);
+            }
+        }
+        progress.progress(rows, 2 * rows);
+
+        // Calculate and store the parity bits
+        sumControl(discs, progress, rows, 2 * rows);
+        event.finish((dataLength + 7) / 8, rows, 0);
+    }
+
+    /**
+     * Reads the original data back from packed disks, skipping the parity bits. Bits of a failed
+     * disk are reconstructed from the rest of their row.
+     */
+    public static PackedDisc readData(PackedDisc[] discs, long originalDataSize) {
+        return readData(discs, originalDataSize, ProgressListener.NONE);
+    }
+
+    /**
+     * Same as readData(discs, originalDataSize), reporting data bits read out of originalDataSize.
+     */
+    public static PackedDisc readData(PackedDisc[] discs, long originalDataSize, ProgressListener progress) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.READ);
+        PackedDisc recoveredData = new PackedDisc(originalDataSize);
+        int numberOfDiscs = discs.length;
+        int failedIndex = failedDisc(discs);
+        long rows = discs[0].size();
+        int[] rotation = StripeLayout.rotationTable(numberOfDiscs);
+        int phase = 0;
+
+        long currentIndex = 0;
+        long row = 0;
+        long reconstructed = 0;
+        for (; row < rows && currentIndex < originalDataSize; row++) {
+            int skipIndex = rotation[phase];
+            for (int i = 0; i < numberOfDiscs && currentIndex < originalDataSize; i++) {
+                if (i != skipIndex) {
+                    boolean bit;
+                    if (i == failedIndex) {
+                        bit = reconstructBit(discs, i, row);
+                        reconstructed++;
+                    } else {
+                        bit = discs[i].getBit(row);
+                    }
+                    if (bit) {
+                        recoveredData.setBit(currentIndex, true);
+                    }
+                    currentIndex++;
+                }
+            }
+            phase = nextPhase(phase, rotation);
+            if ((row & (PROGRESS_ROWS - 1)) == PROGRESS_ROWS - 1) {
+                progress.progress(currentIndex, originalDataSize);
+            }
+        }
+        progress.progress(currentIndex, originalDataSize);
+        event.finish((originalDataSize + 7) / 8, row, reconstructed);
+        return recoveredData;
+    }
+
+    /**
+     * Reads length data bits starting at bit offset from packed disks, visiting only the rows that
+     * hold them. Bits of a failed disk are reconstructed from the rest of their row.
+     */
+    public static PackedDisc read(PackedDisc[] discs, long offset, long length) {
+        int numberOfDiscs = discs.length;
+        checkRange("Read", offset, length, discs[0].size() * (numberOfDiscs - 1));
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.READ);
+        int failedIndex = failedDisc(discs);
+        PackedDisc range = new PackedDisc(length);
+        long firstRow = offset / (numberOfDiscs - 1);
+        long reconstructed = 0;
+
+        long row = firstRow;
+        int position = (int) (offset % (numberOfDiscs - 1));
+        int skipIndex = StripeLayout.parityDisc(row, numberOfDiscs);
+        for (long i = 0; i < length; i++) {
+            int discIndex = StripeLayout.dataDisc(skipIndex, position);
+            boolean bit;
+            if (discIndex == failedIndex) {
+                bit = reconstructBit(discs, discIndex, row);
+                reconstructed++;
+            } else {
+                bit = discs[discIndex].getBit(row);
+            }
+            if (bit) {
+                range.setBit(i, true);
+            }
+            if (++position == numberOfDiscs - 1) {
+                position = 0;
+                row++;
+                skipIndex = StripeLayout.parityDisc(row, numberOfDiscs);
+            }
+        }
+        long rows = length == 0 ? 0 : (offset + length - 1) / (numberOfDiscs - 1) - firstRow + 1;
+        event.finish((length + 7) / 8, rows, reconstructed);
+        return range;
+    }
+
+    private static boolean reconstructBit(PackedDisc[] discs, int failedIndex, long row) {
+        boolean bit = false;
+        for (int j = 0; j < discs.length; j++) {
+            if (j != failedIndex) {
+                bit ^= discs[j].getBit(row);
+            }
+        }
+        return bit;
+    }
+
+    /**
+     * Index of the failed disk, or -1 when all disks are healthy. RAID5 survives one failure only.
+     */
+    public static int failedDisc(DiscStore[] discs) {
+        int failedIndex = -1;
+        for (int i = 0; i < discs.length; i++) {
+            if (discs[i].isFailed()) {
+                if (failedIndex >= 0) {
+                    throw new IllegalStateException("Discs " + failedIndex + " and " + i + " failed, data is lost");
+                }
+                failedIndex = i;
+            }
+        }
+        return failedIndex;
+    }
+
+    /**
+     * Rebuilds a damaged packed disk from the remaining disks and puts it back into the array.
+     */
+    public static PackedDisc recoverData(PackedDisc[] discs, int discIndex, long originalDataSize) {
+        return recoverData(discs, discIndex, originalDataSize, ProgressListener.NONE);
+    }
+
+    /**
+     * Same as recoverData(discs, discIndex, originalDataSize), reporting rows rebuilt and then rows
+     * given their parity, out of twice the number of rows. Cancelled part way, the new disk is in
+     * the array but still marked as failed, so it can be recovered again.
+     */
+    public static PackedDisc recoverData(PackedDisc[] discs, int discIndex, long originalDataSize,
+                                         ProgressListener progress) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.REBUILD).disc(discIndex);
+        PackedDisc recoveredData = new PackedDisc(discs[discIndex == 0 ? 1 : 0].size());
+        recoveredData.setFailed(true);
+        discs[discIndex] = recoveredData;
+        long rows = recoveredData.size();
+        long[][] words = wordsOf(discs);
+        long[][] parityWords = parityWordsOf(discs);
+        int wordCount = recoveredData.wordCount();
+        for (int from = 0; from < wordCount; from += PROGRESS_WORDS) {
+            int to = Math.min(wordCount, from + PROGRESS_WORDS);
+            recoverWords(words, parityWords, discIndex, rows, from, to);
+            progress.progress(Math.min(rows, to * 64L), 2 * rows);
+        }
+        sumControl(discs, progress, rows, 2 * rows);
+        recoveredData.setFailed(false);
+        event.finish(wordCount * 8L, rows, 0);
+        return recoveredData;
+    }
+
+    /**
+     * Same as recoverData(discs, discIndex, originalDataSize), with blocks of words spread over the
+     * pool's workers.
+     */
+    public static PackedDisc recoverData(PackedDisc[] discs, int discIndex, long originalDataSize, ForkJoinPool pool) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.REBUILD).disc(discIndex);
+        PackedDisc recoveredData = new PackedDisc(discs[discIndex == 0 ? 1 : 0].size());
+        discs[discIndex] = recoveredData;
+        long[][] words = wordsOf(discs);
+        long[][] parityWords = parityWordsOf(discs);
+        RangeTask.run(pool, 0, recoveredData.wordCount(), ParityEngine.BLOCK_WORDS,
+                (from, to) -> recoverWords(words, parityWords, discIndex, recoveredData.size(), (int) from, (int) to));
+        sumControl(discs, pool);
+        event.finish(recoveredData.wordCount() * 8L, recoveredData.size(), 0);
+        return recoveredData;
+    }
+
+    private static void recoverWords(long[][] words, long[][] parityWords, int discIndex, long dataSize,
+                                     int fromWord, int toWord) {
+        long[] recovered = words[discIndex];
+        long[] recoveredParity = parityWords[discIndex];
+
+        for (int from = fromWord; from < toWord; from += ParityEngine.BLOCK_WORDS) {
+            int length = Math.min(ParityEngine.BLOCK_WORDS, toWord - from);
+            // The missing word is the XOR of the same word on every other disk
+            for (int j = 0; j < words.length; j++) {
+                if (j != discIndex) {
+                    ParityEngine.xor(words[j], from, recovered, from, length);
+                }
+            }
+        }
+
+        // The rebuilt disk holds the parity of every row no other disk holds it for
+        for (int w = fromWord; w < toWord; w++) {
+            long otherParity = 0;
+            for (int j = 0; j < words.length; j++) {
+                if (j != discIndex) {
+                    otherParity |= parityWords[j][w];
+                }
+            }
+            recoveredParity[w] = ~otherParity;
+        }
+        if (toWord == PackedDisc.wordsFor(dataSize) && (dataSize & 63) != 0) {
+            recoveredParity[toWord - 1] &= (1L << dataSize) - 1;
+        }
+    }
+
+    /**
+     * Creates disks large enough to hold dataLength bytes in the given stripe layout.
+     */
+    public static PackedDisc[] createDiscArray(StripeLayout layout, long dataLength) {
+        PackedDisc[] discs = new PackedDisc[layout.getNumberOfDiscs()];
+        for (int i = 0; i < discs.length; i++) {
+            discs[i] = new PackedDisc(layout.discSize(dataLength) * 8);
+        }
+        return discs;
+    }
+
+    /**
+     * Creates file-backed disks named disc0.img, disc1.img, ... in the given directory, large
+     * enough to hold dataLength bytes. Existing disk files are overwritten.
+     */
+    public static MappedDisc[] createDiscArray(Path directory, StripeLayout layout, long dataLength) throws IOException {
+        Files.createDirectories(directory);
+        MappedDisc[] discs = new MappedDisc[layout.getNumberOfDiscs()];
+        for (int i = 0; i < discs.length; i++) {
+            discs[i] = MappedDisc.create(discFile(directory, i), layout.discSize(dataLength));
+        }
+        return discs;
+    }
+
+    /**
+     * Opens file-backed disks previously created in the given directory.
+     */
+    public static MappedDisc[] openDiscArray(Path directory, int numberOfDiscs) throws IOException {
+        MappedDisc[] discs = new MappedDisc[numberOfDiscs];
+        for (int i = 0; i < numberOfDiscs; i++) {
+            Path file = discFile(directory, i);
+            if (!Files.exists(file)) {
+                throw new NoSuchFileException(file.toString());
+            }
+            discs[i] = MappedDisc.open(file);
+        }
+        return discs;
+    }
+
+    public static Path discFile(Path directory, int discIndex) {
+        return directory.resolve("disc" + discIndex + ".img");
+    }
+
+    /**
+     * Simulates a disk failure in a striped array. The disk is either truncated, dropping all of
+     * its blocks, or overwritten with zeros.
+     */
+    public static void simulateDamage(Disc discNew, DiscStore[] discs, boolean truncate) {
+        DiscStore disc = discs[discNew.getDamagedDiscIndex()];
+        if (truncate) {
+            disc.truncate();
+        } else {
+            disc.zero();
+        }
+        disc.setFailed(true);
+    }
+
+    /**
+     * Saves data in stripes of one chunk per disk and writes the parity chunk of each stripe.
+     * Existing disk contents are replaced.
+     */
+    public static void saveData(byte[] data, DiscStore[] discs, StripeLayout layout) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.SAVE);
+        int numberOfDiscs = layout.getNumberOfDiscs();
+        int chunkSize = layout.getChunkSize();
+        int chunkWords = layout.getChunkWords();
+        long stripes = layout.stripeCount(data.length);
+        long[] parity = new long[chunkWords];
+
+        for (DiscStore disc : discs) {
+            disc.setSize(0);
+            disc.setSize(stripes * chunkSize * 8);
+        }
+
+        int currentIndex = 0;
+
+        for (long stripe = 0; stripe < stripes; stripe++) {
+            int skipIndex = layout.parityDisc(stripe);
+            long discOffset = stripe * chunkSize;
+            long chunkIndex = stripe * chunkWords;
+            Arrays.fill(parity, 0L);
+
+            for (int position = 0; position < numberOfDiscs - 1; position++) {
+                DiscStore disc = discs[StripeLayout.dataDisc(skipIndex, position)];
+                int length = Math.min(chunkSize, data.length - currentIndex);
+                if (length > 0) {
+                    disc.writeBytes(discOffset, data, currentIndex, length);
+                    currentIndex += length;
+                    // Parity of the stripe while its chunks are still in cache
+                    disc.xorWords(chunkIndex, parity, 0, chunkWords);
+                }
+            }
+            discs[skipIndex].writeWords(chunkIndex, parity, 0, chunkWords);
+        }
+        event.finish(data.length, stripes, 0);
+    }
+
+    /**
+     * Same as saveData(data, discs, layout), with the chunks of every stripe written to all disks at
+     * once by the scheduler. Parity is computed from the data in memory instead of read back.
+     */
+    public static void saveData(byte[] data, DiscStore[] discs, StripeLayout layout, DiscScheduler scheduler) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.SAVE);
+        int stripeSize = (int) layout.getStripeSize();
+        long stripes = layout.stripeCount(data.length);
+        long[] parity = new long[layout.getChunkWords()];
+        scheduler.run(discs.length, i -> {
+            discs[i].setSize(0);
+            discs[i].setSize(stripes * layout.getChunkSize() * 8);
+        });
+
+        for (long stripe = 0; stripe < stripes; stripe++) {
+            int stripeStart = (int) (stripe * stripeSize);
+            if (stripeStart + stripeSize <= data.length) {
+                writeStripe(discs, layout, stripe, layout.parityDisc(stripe), data, stripeStart, parity, scheduler);
+            } else {
+                // Pad the last stripe with zeros
+                byte[] lastStripe = Arrays.copyOfRange(data, stripeStart, stripeStart + stripeSize);
+                writeStripe(discs, layout, stripe, layout.parityDisc(stripe), lastStripe, 0, parity, scheduler);
+            }
+        }
+        event.finish(data.length, stripes, 0);
+    }
+
+    public static void write(DiscStore[] discs, StripeLayout layout, long offset, byte[] data) {
+        write(discs, layout, offset, data, 0, data.length);
+    }
+
+    /**
+     * Overwrites length bytes of the array starting at offset and updates the parity of the touched
+     * stripes only. Stripes covered completely get their parity from the new data alone; partly
+     * covered stripes use new parity = old parity ^ old data ^ new data.
+     */
+    public static void write(DiscStore[] discs, StripeLayout layout, long offset, byte[] data, int dataOffset, int length) {
+        int numberOfDiscs = layout.getNumberOfDiscs();
+        int chunkSize = layout.getChunkSize();
+        int chunkWords = layout.getChunkWords();
+        long stripeSize = layout.getStripeSize();
+        checkRange("Write", offset, length, capacity(discs, layout));
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.WRITE);
+
+        long firstStripe = layout.stripeOf(offset);
+        int failedIndex = failedDisc(discs);
+        long[] parity = null;
+        byte[] oldData = null;
+        byte[] parityDelta = null;
+        byte[] stripeData = null;
+
+        int written = 0;
+        for (long stripe = firstStripe; written < length; stripe++) {
+            int skipIndex = layout.parityDisc(stripe);
+            long stripeStart = stripe * stripeSize;
+            int from = (int) (offset + written - stripeStart);
+            int to = (int) Math.min(stripeSize, offset + length - stripeStart);
+            long discOffset = stripe * chunkSize;
+            int source = dataOffset + written;
+
+            if (from == 0 && to == stripeSize) {
+                // Full-stripe write, nothing has to be read back
+                if (parity == null) {
+                    parity = new long[chunkWords];
+                }
+                writeStripe(discs, layout, stripe, skipIndex, data, source, parity);
+            } else if (failedIndex >= 0) {
+                // Old data or old parity is missing, so merge into the whole stripe and write
+                // it out in full; this also repairs the stripe on the failed disk
+                if (parity == null) {
+                    parity = new long[chunkWords];
+                }
+                if (stripeData == null) {
+                    stripeData = new byte[(int) stripeSize];
+                }
+                for (int position = 0; position < numberOfDiscs - 1; position++) {
+                    readChunk(discs, layout, failedIndex, stripe, StripeLayout.dataDisc(skipIndex, position),
+                            0, stripeData, position * chunkSize, chunkSize, parity);
+                }
+                System.arraycopy(data, source, stripeData, from, to - from);
+                writeStripe(discs, layout, stripe, skipIndex, stripeData, 0, parity);
+            } else {
+                if (oldData == null) {
+                    oldData = new byte[chunkSize];
+                    parityDelta = new byte[chunkSize];
+                }
+                Arrays.fill(parityDelta, (byte) 0);
+                int deltaFrom = chunkSize;
+                int deltaTo = 0;
+
+                for (int position = from / chunkSize; position <= (to - 1) / chunkSize; position++) {
+                    int chunkFrom = Math.max(from, position * chunkSize) - position * chunkSize;
+                    int chunkTo = Math.min(to, (position + 1) * chunkSize) - position * chunkSize;
+                    int chunkLength = chunkTo - chunkFrom;
+                    int chunkSource = source + position * chunkSize + chunkFrom - from;
+                    DiscStore disc = discs[StripeLayout.dataDisc(skipIndex, position)];
+
+                    // old ^ new of this chunk, collected for the parity chunk
+                    disc.readBytes(discOffset + chunkFrom, oldData, chunkFrom, chunkLength);
+                    ParityEngine.xor(data, chunkSource, oldData, chunkFrom, chunkLength);
+                    ParityEngine.xor(oldData, chunkFrom, parityDelta, chunkFrom, chunkLength);
+                    disc.writeBytes(discOffset + chunkFrom, data, chunkSource, chunkLength);
+                    deltaFrom = Math.min(deltaFrom, chunkFrom);
+                    deltaTo = Math.max(deltaTo, chunkTo);
+                }
+
+                DiscStore parityDisc = discs[skipIndex];
+                parityDisc.readBytes(discOffset + deltaFrom, oldData, deltaFrom, deltaTo - deltaFrom);
+                ParityEngine.xor(parityDelta, deltaFrom, oldData, deltaFrom, deltaTo - deltaFrom);
+                parityDisc.writeBytes(discOffset + deltaFrom, oldData, deltaFrom, deltaTo - deltaFrom);
+            }
+            written += to - from;
+        }
+        event.finish(length, length == 0 ? 0 : layout.stripeOf(offset + length - 1) - firstStripe + 1, 0);
+    }
+
+    /**
+     * Data bytes the disks can hold, i.e. all data chunks of every stripe.
+     */
+    public static long capacity(DiscStore[] discs, StripeLayout layout) {
+        return discs[0].size() / 8 / layout.getChunkSize() * layout.getStripeSize();
+    }
+
+    static void checkRange(String operation, long offset, long length, long capacity) {
+        if (offset < 0 || length < 0 || offset + length > capacity) {
+            throw new IndexOutOfBoundsException(operation + " of " + length + " at " + offset
+                    + " out of bounds for array capacity " + capacity);
+        }
+    }
+
+    /**
+     * Writes one whole stripe of data starting at data[dataOffset], with parity computed from the
+     * data itself. The parity array is scratch space of one chunk.
+     */
+    static void writeStripe(DiscStore[] discs, StripeLayout layout, long stripe, int skipIndex,
+                            byte[] data, int dataOffset, long[] parity) {
+        int chunkSize = layout.getChunkSize();
+        int chunkWords = layout.getChunkWords();
+        long discOffset = stripe * chunkSize;
+
+        Arrays.fill(parity, 0L);
+        for (int position = 0; position < layout.getNumberOfDiscs() - 1; position++) {
+            int chunkStart = dataOffset + position * chunkSize;
+            discs[StripeLayout.dataDisc(skipIndex, position)].writeBytes(discOffset, data, chunkStart, chunkSize);
+            ParityEngine.xor(data, chunkStart, parity, 0, chunkWords);
+        }
+        discs[skipIndex].writeWords(stripe * chunkWords, parity, 0, chunkWords);
+    }
+
+    // writeStripe with the parity computed first and every disk written at once
+    private static void writeStripe(DiscStore[] discs, StripeLayout layout, long stripe, int skipIndex,
+                                    byte[] data, int dataOffset, long[] parity, DiscScheduler scheduler) {
+        int chunkSize = layout.getChunkSize();
+        int chunkWords = layout.getChunkWords();
+
+        Arrays.fill(parity, 0L);
+        for (int position = 0; position < layout.getNumberOfDiscs() - 1; position++) {
+            ParityEngine.xor(data, dataOffset + position * chunkSize, parity, 0, chunkWords);
+        }
+        scheduler.run(discs.length, i -> {
+            if (i == skipIndex) {
+                discs[i].writeWords(stripe * chunkWords, parity, 0, chunkWords);
+            } else {
+                int position = i < skipIndex ? i : i - 1;
+                discs[i].writeBytes(stripe * chunkSize, data, dataOffset + position * chunkSize, chunkSize);
+            }
+        });
+    }
+
+    public static long saveData(InputStream in, DiscStore[] discs, StripeLayout layout) throws IOException {
+        return saveData(Channels.newChannel(in), discs, layout, null);
+    }
+
+    public static long saveData(InputStream in, DiscStore[] discs, StripeLayout layout, WriteIntentBitmap intent)
+            throws IOException {
+        return saveData(Channels.newChannel(in), discs, layout, intent);
+    }
+
+    public static long saveData(ReadableByteChannel in, DiscStore[] discs, StripeLayout layout) throws IOException {
+        return saveData(in, discs, layout, null);
+    }
+
+    /**
+     * Saves everything the channel delivers, one stripe at a time, computing parity on the fly.
+     * Only one stripe of data is buffered whatever the input size, and the disks grow as data
+     * arrives. Existing disk contents are replaced. Returns the number of data bytes saved.
+     * Each stripe is recorded in the write-intent bitmap, if one is given, while it is written.
+     */
+    public static long saveData(ReadableByteChannel in, DiscStore[] discs, StripeLayout layout,
+                                WriteIntentBitmap intent) throws IOException {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.SAVE);
+        long chunkBits = layout.getChunkSize() * 8L;
+        byte[] stripeData = new byte[(int) layout.getStripeSize()];
+        ByteBuffer buffer = ByteBuffer.wrap(stripeData);
+        long[] parity = new long[layout.getChunkWords()];
+
+        for (DiscStore disc : discs) {
+            disc.setSize(0);
+        }
+
+        long dataLength = 0;
+        long stripe = 0;
+        boolean endOfStream = false;
+
+        while (!endOfStream) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                if (in.read(buffer) < 0) {
+                    endOfStream = true;
+                    break;
+                }
+            }
+            if (buffer.position() == 0) {
+                break;
+            }
+            // Pad the last stripe with zeros
+            Arrays.fill(stripeData, buffer.position(), stripeData.length, (byte) 0);
+            dataLength += buffer.position();
+
+            long needed = (stripe + 1) * chunkBits;
+            if (discs[0].size() < needed) {
+                // Grow geometrically, resizing a file-backed disk remaps it
+                long grown = Math.max(needed, Math.min(discs[0].size() * 2, discs[0].size() + (1L << 33)));
+                for (DiscStore disc : discs) {
+                    disc.setSize(grown);
+                }
+            }
+            if (intent != null) {
+                intent.startWrite(stripe);
+            }
+            writeStripe(discs, layout, stripe, layout.parityDisc(stripe), stripeData, 0, parity);
+            if (intent != null) {
+                intent.endWrite(stripe);
+            }
+            stripe++;
+        }
+
+        for (DiscStore disc : discs) {
+            disc.setSize(stripe * chunkBits);
+        }
+        event.finish(dataLength, stripe, 0);
+        return dataLength;
+    }
+
+    /**
+     * Recalculates the parity chunk of every stripe from its data chunks.
+     */
+    public static void sumControl(DiscStore[] discs, StripeLayout layout) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.PARITY);
+        long stripes = discs[0].size() / 8 / layout.getChunkSize();
+        sumControlStripes(discs, layout, 0, stripes);
+        event.finish(stripes * layout.getChunkSize() * discs.length, stripes, 0);
+    }
+
+    /**
+     * Same as sumControl(discs, layout), with ranges of stripes spread over the pool's workers.
+     * Use new ForkJoinPool(n) to choose the parallelism level.
+     */
+    public static void sumControl(DiscStore[] discs, StripeLayout layout, ForkJoinPool pool) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.PARITY);
+        long stripes = discs[0].size() / 8 / layout.getChunkSize();
+        RangeTask.run(pool, 0, stripes, stripeGrain(layout), (from, to) -> sumControlStripes(discs, layout, from, to));
+        event.finish(stripes * layout.getChunkSize() * discs.length, stripes, 0);
+    }
+
+    /**
+     * Same as sumControl(discs, layout), with the data chunks of every stripe read from all disks
+     * at once by the scheduler.
+     */
+    public static void sumControl(DiscStore[] discs, StripeLayout layout, DiscScheduler scheduler) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.PARITY);
+        int chunkWords = layout.getChunkWords();
+        long stripes = discs[0].size() / 8 / layout.getChunkSize();
+        long[][] chunks = new long[discs.length][chunkWords];
+
+        for (long stripe = 0; stripe < stripes; stripe++) {
+            int skipIndex = layout.parityDisc(stripe);
+            xorOfOthers(discs, skipIndex, stripe * chunkWords, chunks, scheduler);
+            discs[skipIndex].writeWords(stripe * chunkWords, chunks[skipIndex], 0, chunkWords);
+        }
+        event.finish(stripes * layout.getChunkSize() * discs.length, stripes, 0);
+    }
+
+    /**
+     * Reads the chunk at chunkIndex of every disk except skipIndex in parallel into chunks[j] and
+     * leaves their XOR in chunks[skipIndex].
+     */
+    private static void xorOfOthers(DiscStore[] discs, int skipIndex, long chunkIndex, long[][] chunks,
+                                    DiscScheduler scheduler) {
+        int chunkWords = chunks[skipIndex].length;
+        scheduler.run(discs.length, j -> {
+            if (j != skipIndex) {
+                discs[j].readWords(chunkIndex, chunks[j], 0, chunkWords);
+            }
+        });
+        Arrays.fill(chunks[skipIndex], 0L);
+        for (int j = 0; j < discs.length; j++) {
+            if (j != skipIndex) {
+                ParityEngine.xor(chunks[j], 0, chunks[skipIndex], 0, chunkWords);
+            }
+        }
+    }
+
+    static void sumControlStripes(DiscStore[] discs, StripeLayout layout, long fromStripe, long toStripe) {
+        int numberOfDiscs = layout.getNumberOfDiscs();
+        int chunkWords = layout.getChunkWords();
+        long[] parity = new long[chunkWords];
+
+        for (long stripe = fromStripe; stripe < toStripe; stripe++) {
+            int skipIndex = layout.parityDisc(stripe);
+            long chunkIndex = stripe * chunkWords;
+            Arrays.fill(parity, 0L);
+            for (int j = 0; j < numberOfDiscs; j++) {
+                if (j != skipIndex) {
+                    discs[j].xorWords(chunkIndex, parity, 0, chunkWords);
+                }
+            }
+            discs[skipIndex].writeWords(chunkIndex, parity, 0, chunkWords);
+        }
+    }
+
+    // Stripes per task, so that a task moves at least one parity block
+    private static long stripeGrain(StripeLayout layout) {
+        return Math.max(1, ParityEngine.BLOCK_WORDS / layout.getChunkWords());
+    }
+
+    /**
+     * Reads the first originalDataSize bytes back from the data chunks of each stripe. Chunks of
+     * a failed disk are reconstructed from the other disks of their stripe.
+     */
+    public static byte[] readData(DiscStore[] discs, StripeLayout layout, int originalDataSize) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.READ);
+        byte[] recoveredData = new byte[originalDataSize];
+        int numberOfDiscs = layout.getNumberOfDiscs();
+        int chunkSize = layout.getChunkSize();
+        int failedIndex = failedDisc(discs);
+        long[] scratch = failedIndex >= 0 ? new long[layout.getChunkWords()] : null;
+
+        int currentIndex = 0;
+        long stripe = 0;
+        long reconstructed = 0;
+        for (; currentIndex < originalDataSize; stripe++) {
+            int skipIndex = layout.parityDisc(stripe);
+            for (int position = 0; position < numberOfDiscs - 1 && currentIndex < originalDataSize; position++) {
+                int length = Math.min(chunkSize, originalDataSize - currentIndex);
+                int discIndex = StripeLayout.dataDisc(skipIndex, position);
+                if (discIndex == failedIndex) {
+                    reconstructed++;
+                }
+                readChunk(discs, layout, failedIndex, stripe, discIndex, 0, recoveredData, currentIndex, length, scratch);
+                currentIndex += length;
+            }
+        }
+        event.finish(originalDataSize, stripe, reconstructed);
+        return recoveredData;
+    }
+
+    /**
+     * Same as readData(discs, layout, originalDataSize), with the data chunks of every stripe read
+     * from all disks at once by the scheduler.
+     */
+    public static byte[] readData(DiscStore[] discs, StripeLayout layout, int originalDataSize, DiscScheduler scheduler) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.READ);
+        byte[] recoveredData = new byte[originalDataSize];
+        int chunkSize = layout.getChunkSize();
+        long stripeSize = layout.getStripeSize();
+        int failedIndex = failedDisc(discs);
+        // Only the task of the failed disk's chunk uses it, at most one per stripe
+        long[] scratch = failedIndex >= 0 ? new long[layout.getChunkWords()] : null;
+        long stripes = layout.stripeCount(originalDataSize);
+        long reconstructed = 0;
+
+        for (long stripe = 0; stripe < stripes; stripe++) {
+            int skipIndex = layout.parityDisc(stripe);
+            long stripeStart = stripe * stripeSize;
+            long current = stripe;
+            if (failedIndex >= 0 && failedIndex != skipIndex
+                    && stripeStart + (long) (failedIndex < skipIndex ? failedIndex : failedIndex - 1) * chunkSize < originalDataSize) {
+                reconstructed++;
+            }
+            scheduler.run(layout.getNumberOfDiscs() - 1, position -> {
+                long from = stripeStart + (long) position * chunkSize;
+                if (from < originalDataSize) {
+                    int length = (int) Math.min(chunkSize, originalDataSize - from);
+                    readChunk(discs, layout, failedIndex, current, StripeLayout.dataDisc(skipIndex, position),
+                            0, recoveredData, (int) from, length, scratch);
+                }
+            });
+        }
+        event.finish(originalDataSize, stripes, reconstructed);
+        return recoveredData;
+    }
+
+    /**
+     * Reads length bytes at chunkOffset of the given disk's chunk in a stripe. A chunk of the
+     * failed disk is the XOR of the same chunk on all other disks; scratch holds one chunk.
+     */
+    private static void readChunk(DiscStore[] discs, StripeLayout layout, int failedIndex, long stripe, int discIndex,
+                                  int chunkOffset, byte[] dst, int dstOffset, int length, long[] scratch) {
+        if (discIndex != failedIndex) {
+            discs[discIndex].readBytes(stripe * layout.getChunkSize() + chunkOffset, dst, dstOffset, length);
+            return;
+        }
+        int chunkWords = layout.getChunkWords();
+        Arrays.fill(scratch, 0L);
+        for (int j = 0; j < discs.length; j++) {
+            if (j != failedIndex) {
+                discs[j].xorWords(stripe * chunkWords, scratch, 0, chunkWords);
+            }
+        }
+        ParityEngine.copy(scratch, chunkOffset, dst, dstOffset, length);
+    }
+
+    public static byte[] read(DiscStore[] discs, StripeLayout layout, long offset, int length) {
+        byte[] range = new byte[length];
+        read(discs, layout, offset, range, 0, length);
+        return range;
+    }
+
+    /**
+     * Reads length bytes of the array starting at offset into dst. Only the chunks overlapping the
+     * range are read, so the cost depends on the length and not on the offset. Chunks of a failed
+     * disk are reconstructed from their stripe.
+     */
+    public static void read(DiscStore[] discs, StripeLayout layout, long offset, byte[] dst, int dstOffset, int length) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.READ);
+        long reconstructed = readRange(discs, layout, offset, dst, dstOffset, length);
+        long stripes = length == 0 ? 0 : layout.stripeOf(offset + length - 1) - layout.stripeOf(offset) + 1;
+        event.finish(length, stripes, reconstructed);
+    }
+
+    /**
+     * Same as read without recording it, for callers that may throw the result away. Returns the
+     * number of chunks reconstructed.
+     */
+    static long readRange(DiscStore[] discs, StripeLayout layout, long offset, byte[] dst, int dstOffset, int length) {
+        checkRange("Read", offset, length, capacity(discs, layout));
+        int chunkSize = layout.getChunkSize();
+        int failedIndex = failedDisc(discs);
+        long[] scratch = failedIndex >= 0 ? new long[layout.getChunkWords()] : null;
+        long reconstructed = 0;
+
+        int done = 0;
+        while (done < length) {
+            long position = offset + done;
+            int chunkOffset = (int) (position % chunkSize);
+            int chunkLength = Math.min(chunkSize - chunkOffset, length - done);
+            int discIndex = layout.discOf(position);
+            if (discIndex == failedIndex) {
+                reconstructed++;
+            }
+            readChunk(discs, layout, failedIndex, layout.stripeOf(position), discIndex,
+                    chunkOffset, dst, dstOffset + done, chunkLength, scratch);
+            done += chunkLength;
+        }
+        return reconstructed;
+    }
+
+    public static long readData(DiscStore[] discs, StripeLayout layout, long originalDataSize, OutputStream out) throws IOException {
+        return readData(discs, layout, originalDataSize, Channels.newChannel(out));
+    }
+
+    /**
+     * Streams the first originalDataSize bytes of the array into the channel one chunk at a time.
+     * Chunks of healthy file-backed disks go from the disk file to the channel with
+     * FileChannel.transferTo, all others through a single chunk-sized buffer, reconstructing the
+     * chunks of a failed disk. Returns the number of bytes written.
+     */
+    public static long readData(DiscStore[] discs, StripeLayout layout, long originalDataSize, WritableByteChannel out) throws IOException {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.READ);
+        int numberOfDiscs = layout.getNumberOfDiscs();
+        int chunkSize = layout.getChunkSize();
+        int failedIndex = failedDisc(discs);
+        byte[] chunk = new byte[chunkSize];
+        long[] scratch = failedIndex >= 0 ? new long[layout.getChunkWords()] : null;
+
+        long currentIndex = 0;
+        long stripe = 0;
+        long reconstructed = 0;
+        for (; currentIndex < originalDataSize; stripe++) {
+            int skipIndex = layout.parityDisc(stripe);
+            for (int position = 0; position < numberOfDiscs - 1 && currentIndex < originalDataSize; position++) {
+                int length = (int) Math.min(chunkSize, originalDataSize - currentIndex);
+                int discIndex = StripeLayout.dataDisc(skipIndex, position);
+                if (discIndex != failedIndex && discs[discIndex] instanceof MappedDisc) {
+                    transferFully(((MappedDisc) discs[discIndex]).channel(), stripe * chunkSize, length, out);
+                } else {
+                    if (discIndex == failedIndex) {
+                        reconstructed++;
+                    }
+                    readChunk(discs, layout, failedIndex, stripe, discIndex, 0, chunk, 0, length, scratch);
+                    writeFully(ByteBuffer.wrap(chunk, 0, length), out);
+                }
+                currentIndex += length;
+            }
+        }
+        event.finish(currentIndex, stripe, reconstructed);
+        return currentIndex;
+    }
+
+    private static void transferFully(FileChannel channel, long position, long count, WritableByteChannel out) throws IOException {
+        while (count > 0) {
+            long transferred = channel.transferTo(position, count, out);
+            if (transferred <= 0) {
+                throw new EOFException("Disc file ends at " + position);
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    private static void writeFully(ByteBuffer buffer, WritableByteChannel out) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Rebuilds a damaged disk of a striped array in place, chunk by chunk, from the remaining disks.
+     */
+    public static DiscStore recoverData(DiscStore[] discs, int discIndex, StripeLayout layout) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.REBUILD).disc(discIndex);
+        discs[discIndex].setSize(discs[discIndex == 0 ? 1 : 0].size());
+        long stripes = discs[discIndex].size() / 8 / layout.getChunkSize();
+        recoverStripes(discs, discIndex, layout, 0, stripes);
+        discs[discIndex].setFailed(false);
+        event.finish(stripes * layout.getChunkSize(), stripes, 0);
+        return discs[discIndex];
+    }
+
+    /**
+     * Same as recoverData(discs, discIndex, layout), with ranges of stripes spread over the pool's
+     * workers.
+     */
+    public static DiscStore recoverData(DiscStore[] discs, int discIndex, StripeLayout layout, ForkJoinPool pool) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.REBUILD).disc(discIndex);
+        discs[discIndex].setSize(discs[discIndex == 0 ? 1 : 0].size());
+        long stripes = discs[discIndex].size() / 8 / layout.getChunkSize();
+        RangeTask.run(pool, 0, stripes, stripeGrain(layout), (from, to) -> recoverStripes(discs, discIndex, layout, from, to));
+        discs[discIndex].setFailed(false);
+        event.finish(stripes * layout.getChunkSize(), stripes, 0);
+        return discs[discIndex];
+    }
+
+    /**
+     * Same as recoverData(discs, discIndex, layout), with the chunks of every stripe read from the
+     * remaining disks at once by the scheduler.
+     */
+    public static DiscStore recoverData(DiscStore[] discs, int discIndex, StripeLayout layout, DiscScheduler scheduler) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.REBUILD).disc(discIndex);
+        discs[discIndex].setSize(discs[discIndex == 0 ? 1 : 0].size());
+        int chunkWords = layout.getChunkWords();
+        long stripes = discs[discIndex].size() / 8 / layout.getChunkSize();
+        long[][] chunks = new long[discs.length][chunkWords];
+
+        for (long stripe = 0; stripe < stripes; stripe++) {
+            xorOfOthers(discs, discIndex, stripe * chunkWords, chunks, scheduler);
+            discs[discIndex].writeWords(stripe * chunkWords, chunks[discIndex], 0, chunkWords);
+        }
+        discs[discIndex].setFailed(false);
+        event.finish(stripes * layout.getChunkSize(), stripes, 0);
+        return discs[discIndex];
+    }
+
+    static void recoverStripes(DiscStore[] discs, int discIndex, StripeLayout layout,
+                               long fromStripe, long toStripe) {
+        int numberOfDiscs = layout.getNumberOfDiscs();
+        int chunkWords = layout.getChunkWords();
+        long[] chunk = new long[chunkWords];
+
+        for (long stripe = fromStripe; stripe < toStripe; stripe++) {
+            long chunkIndex = stripe * chunkWords;
+            Arrays.fill(chunk, 0L);
+            for (int j = 0; j < numberOfDiscs; j++) {
+                if (j != discIndex) {
+                    discs[j].xorWords(chunkIndex, chunk, 0, chunkWords);
+                }
+            }
+            discs[discIndex].writeWords(chunkIndex, chunk, 0, chunkWords);
+        }
+    }
+}
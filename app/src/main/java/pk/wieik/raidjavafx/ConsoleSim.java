@@ -1,10 +1,13 @@
 package pk.wieik.raidjavafx;
 
-import java.util.List;
-
 public class ConsoleSim {
 
     public static void main(String[] args) {
+        // With arguments run a single command without prompting, see ArrayCli
+        if (args.length > 0) {
+            System.exit(ArrayCli.run(args, System.in, System.out, System.err));
+        }
+
         // Get the number of disks from the user
         int numberOfDiscs = Disc.numOfDiscs();
         // Get the bit sequence from the user
@@ -13,12 +16,12 @@ public class ConsoleSim {
         // Create a new Disc object with the provided number of disks and data
         Disc disc = new Disc(numberOfDiscs, data);
         // Get the index of the damaged disk from the user
-        Disc discNew = new Disc(Disc.damagedDiscIndex());
+        Disc discNew = new Disc(Disc.damagedDiscIndex(numberOfDiscs));
 
         // Create a list of disks
-        List<List<Bit>> listOfDiscs = Cluster.createDiscList(disc);
-        // Convert the input data to a list of booleans
-        List<Bit> list = Cluster.toList(disc);
+        PackedDisc[] listOfDiscs = Cluster.createDiscArray(disc);
+        // Convert the input data to packed bits
+        PackedDisc list = Cluster.toPackedDisc(disc);
         // Save the data to the disks, including the parity information
         Cluster.saveData(list, listOfDiscs);
 
@@ -26,11 +29,11 @@ public class ConsoleSim {
         Cluster.simulateDamage(discNew, listOfDiscs);
 
         // Print the contents of each disk
-        for (int i = 0; i < listOfDiscs.size(); i++) {
-            System.out.println("Disc " + i + ": " + listOfDiscs.get(i));
+        for (int i = 0; i < listOfDiscs.length; i++) {
+            System.out.println("Disc " + i + ": " + listOfDiscs[i]);
         }
 
-         List<Bit> recoveredData = Cluster.readData(listOfDiscs, originalSize);
+        PackedDisc recoveredData = Cluster.readData(listOfDiscs, originalSize);
 
         // Print the recovered data
         System.out.println("Recovered data: " + recoveredData);
@@ -4,12 +4,12 @@ import java.util.*;
 
 public class Disc {
 
-    private static int numberOfDiscs;
+    private int numberOfDiscs;
     private String data;
     private int discIndex;
 
     public Disc(int numberOfDiscs, String data) {
-        Disc.numberOfDiscs = numberOfDiscs;
+        this.numberOfDiscs = numberOfDiscs;
         this.data = data;
     }
 
@@ -29,10 +29,10 @@ public class Disc {
         return discIndex;
     }
 
-    public static int damagedDiscIndex() {
+    public static int damagedDiscIndex(int numberOfDiscs) {
         Scanner scanner = new Scanner(System.in);
         String data;
-        String regex = ("[0-" + (Disc.numberOfDiscs - 1) + "]");
+        String regex = ("[0-" + (numberOfDiscs - 1) + "]");
         while (true) {
             System.out.println("Please insert damaged disc's index in RAID5 data storage");
             data = scanner.nextLine();
@@ -41,7 +41,7 @@ public class Disc {
                 System.out.println("Index of damaged disc: " + data);
                 break;
             } else {
-                System.out.println("Invalid disc's index. Choose between 0 and " + (Disc.numberOfDiscs - 1) + ". Please try again.");
+                System.out.println("Invalid disc's index. Choose between 0 and " + (numberOfDiscs - 1) + ". Please try again.");
             }
         }
         return Integer.parseInt(data);
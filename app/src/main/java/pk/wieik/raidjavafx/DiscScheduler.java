@@ -0,0 +1,121 @@
+package pk.wieik.raidjavafx;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the per-disk chunk operations of a stripe at the same time and waits for all of them, so a
+ * stripe takes as long as its slowest disk rather than the sum over the disks. This pays off for
+ * file-backed or otherwise slow disks; in-memory disks are faster with the sequential methods.
+ *
+ * <p>Tasks run on virtual threads when the runtime offers them (Java 21 and later), found by
+ * reflection since the project targets Java 17, and on a cached pool of daemon platform threads
+ * otherwise.
+ */
+public class DiscScheduler implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    public DiscScheduler() {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+
+    public DiscScheduler(ExecutorService executor) {
+        this.executor = executor;
+        this.virtualThreads = false;
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Runs task(0) to task(tasks - 1) in parallel, task(0) on the calling thread, and returns once
+     * all of them finished. The first failure is rethrown after the other tasks are done, so no
+     * task is still using the caller's buffers afterwards.
+     */
+    public void run(int tasks, IntConsumer task) {
+        if (tasks <= 0) {
+            return;
+        }
+        Future<?>[] futures = new Future<?>[tasks - 1];
+        for (int i = 1; i < tasks; i++) {
+            int index = i;
+            futures[i - 1] = executor.submit(() -> task.accept(index));
+        }
+
+        Throwable failure = null;
+        try {
+            task.accept(0);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (!Boolean.parseBoolean(System.getProperty("raid.virtualThreads", "true"))) {
+            return null;
+        }
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not there before Java 21, or a preview feature that is not enabled
+            return null;
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "raid-disc-io-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package pk.wieik.raidjavafx;
+
+/**
+ * Storage behind one member disc of a striped array. Sizes are in bits like PackedDisc; words are
+ * 64 bit little-endian groups of 8 bytes, so word i covers bytes 8i to 8i+7.
+ */
+public interface DiscStore {
+
+    long size();
+
+    /**
+     * A failed disc is part of the array but its contents cannot be trusted until it has been
+     * rebuilt; reads reconstruct its chunks from the other discs instead.
+     */
+    boolean isFailed();
+
+    void setFailed(boolean failed);
+
+    /**
+     * Grows or shrinks the disc. Contents past the old size read as zero after growing.
+     */
+    void setSize(long size);
+
+    void readWords(long index, long[] dst, int dstOffset, int length);
+
+    void writeWords(long index, long[] src, int srcOffset, int length);
+
+    /**
+     * dst[dstOffset..] ^= words of this disc starting at index, the building block of parity.
+     */
+    void xorWords(long index, long[] dst, int dstOffset, int length);
+
+    void readBytes(long offset, byte[] dst, int dstOffset, int length);
+
+    void writeBytes(long offset, byte[] src, int srcOffset, int length);
+
+    /**
+     * Overwrites the whole disc with zeros, keeping its size.
+     */
+    void zero();
+
+    /**
+     * Makes everything written so far durable. In-memory discs have nothing to do.
+     */
+    default void force() {
+    }
+
+    /**
+     * Throws away the contents of the disc as if it was replaced by a new one of the same size.
+     */
+    default void truncate() {
+        zero();
+    }
+}
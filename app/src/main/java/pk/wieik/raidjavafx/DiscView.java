@@ -0,0 +1,236 @@
+package pk.wieik.raidjavafx;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Shows the bits of every disc as one row per disc, one column per stripe. Only the columns in the
+ * visible window are drawn, onto a single Canvas the size of the view, so a redraw costs the same
+ * for a few bits as for millions of them. The mouse wheel scrolls and Ctrl + wheel zooms around the
+ * pointer; zoomed out below one pixel per bit, each pixel shows a sample of the bits it covers.
+ */
+public class DiscView extends Region {
+    public static final double MAX_CELL_WIDTH = 40;
+    public static final double DEFAULT_CELL_WIDTH = 25;
+
+    private static final double ROW_HEIGHT = 25;
+    private static final double ROW_GAP = 8;
+    private static final double LABEL_WIDTH = 60;
+    // Bits looked at per pixel when zoomed out
+    private static final int SAMPLES = 16;
+    private static final Color DATA_ONE = Color.DIMGRAY;
+    private static final Color PARITY_ZERO = Color.LIGHTGREEN;
+    private static final Color FAILED = Color.rgb(244, 67, 54, 0.35);
+
+    private final Canvas canvas = new Canvas();
+    private final ScrollBar scrollBar = new ScrollBar();
+    private final DoubleProperty cellWidth = new SimpleDoubleProperty(this, "cellWidth", DEFAULT_CELL_WIDTH);
+    private PackedDisc[] discs = new PackedDisc[0];
+
+    public DiscView() {
+        scrollBar.setOrientation(Orientation.HORIZONTAL);
+        scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> draw());
+        cellWidth.addListener((observable, oldValue, newValue) -> {
+            updateScrollBar();
+            draw();
+        });
+        canvas.addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+        getChildren().addAll(canvas, scrollBar);
+    }
+
+    /**
+     * Shows the given discs, keeping zoom and scroll position where possible.
+     */
+    public void setDiscs(PackedDisc[] discs) {
+        this.discs = discs != null ? discs.clone() : new PackedDisc[0];
+        updateScrollBar();
+        requestLayout();
+        draw();
+    }
+
+    public double getCellWidth() {
+        return cellWidth.get();
+    }
+
+    public void setCellWidth(double width) {
+        cellWidth.set(Math.max(minCellWidth(), Math.min(MAX_CELL_WIDTH, width)));
+    }
+
+    /**
+     * The narrowest a bit can get: one pixel, or less where that is what it takes to fit every bit.
+     */
+    public double minCellWidth() {
+        long bits = bitCount();
+        return bits > 0 ? Math.min(1, columnsWidth() / bits) : 1;
+    }
+
+    /**
+     * Zooms out until every bit fits into the view.
+     */
+    public void zoomToFit() {
+        long bits = bitCount();
+        if (bits > 0) {
+            setCellWidth(columnsWidth() / bits);
+            scrollBar.setValue(0);
+        }
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return 600;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return rowsHeight() + scrollBar.prefHeight(-1);
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double rows = rowsHeight();
+        canvas.setWidth(width);
+        canvas.setHeight(rows);
+        canvas.relocate(0, 0);
+        scrollBar.resizeRelocate(LABEL_WIDTH, rows, Math.max(0, width - LABEL_WIDTH), scrollBar.prefHeight(-1));
+        updateScrollBar();
+        draw();
+    }
+
+    private double rowsHeight() {
+        return discs.length * (ROW_HEIGHT + ROW_GAP);
+    }
+
+    private double columnsWidth() {
+        return Math.max(1, canvas.getWidth() - LABEL_WIDTH);
+    }
+
+    private long bitCount() {
+        long bits = 0;
+        for (PackedDisc disc : discs) {
+            bits = Math.max(bits, disc.size());
+        }
+        return bits;
+    }
+
+    // The scroll bar counts in bits: its value is the first visible column
+    private void updateScrollBar() {
+        double visible = columnsWidth() / getCellWidth();
+        double max = Math.max(0, bitCount() - visible);
+        scrollBar.setMax(max);
+        scrollBar.setVisibleAmount(Math.min(visible, bitCount()));
+        scrollBar.setUnitIncrement(Math.max(1, visible / 20));
+        scrollBar.setBlockIncrement(Math.max(1, visible * 0.9));
+        if (scrollBar.getValue() > max) {
+            scrollBar.setValue(max);
+        }
+    }
+
+    private void onScroll(ScrollEvent event) {
+        double cell = getCellWidth();
+        if (event.isControlDown()) {
+            double x = Math.max(0, event.getX() - LABEL_WIDTH);
+            double anchor = scrollBar.getValue() + x / cell;
+            setCellWidth(cell * (event.getDeltaY() > 0 ? 1.25 : 0.8));
+            scrollBar.setValue(Math.max(0, Math.min(scrollBar.getMax(), anchor - x / getCellWidth())));
+        } else {
+            double delta = event.getDeltaX() != 0 ? event.getDeltaX() : event.getDeltaY();
+            scrollBar.setValue(Math.max(0, Math.min(scrollBar.getMax(), scrollBar.getValue() - delta / cell)));
+        }
+        event.consume();
+    }
+
+    private void draw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        double cell = getCellWidth();
+        double first = scrollBar.getValue();
+        double width = canvas.getWidth() - LABEL_WIDTH;
+
+        g.setTextBaseline(VPos.CENTER);
+        for (int d = 0; d < discs.length; d++) {
+            PackedDisc disc = discs[d];
+            double y = d * (ROW_HEIGHT + ROW_GAP);
+            g.setFill(Color.BLACK);
+            g.setTextAlign(TextAlignment.LEFT);
+            g.setFont(Font.getDefault());
+            g.fillText("Disc " + (d + 1), 4, y + ROW_HEIGHT / 2);
+
+            if (cell >= 1) {
+                drawBits(g, disc, first, cell, width, y);
+            } else {
+                drawSamples(g, disc, first, cell, width, y);
+            }
+            if (disc.isFailed()) {
+                g.setFill(FAILED);
+                g.fillRect(LABEL_WIDTH, y, Math.max(0, Math.min(width, (disc.size() - first) * cell)), ROW_HEIGHT);
+            }
+        }
+    }
+
+    // One rectangle per bit, with its value written in when there is room
+    private void drawBits(GraphicsContext g, PackedDisc disc, double first, double cell, double width, double y) {
+        boolean outline = cell >= 6;
+        boolean text = cell >= 14;
+        if (text) {
+            g.setTextAlign(TextAlignment.CENTER);
+            g.setFont(Font.font(Math.min(14, cell * 0.6)));
+        }
+        g.setStroke(Color.BLACK);
+        for (long bit = (long) first; bit < disc.size(); bit++) {
+            double x = LABEL_WIDTH + (bit - first) * cell;
+            if (x >= LABEL_WIDTH + width) {
+                break;
+            }
+            boolean parity = disc.isParityBit(bit);
+            boolean value = disc.getBit(bit);
+            if (text) {
+                g.setFill(parity ? Color.GREEN : Color.WHITE);
+            } else {
+                g.setFill(parity ? (value ? Color.GREEN : PARITY_ZERO) : (value ? DATA_ONE : Color.WHITE));
+            }
+            double left = Math.max(LABEL_WIDTH, x);
+            g.fillRect(left, y, x + cell - left, ROW_HEIGHT);
+            if (outline) {
+                g.strokeRect(left, y, x + cell - left, ROW_HEIGHT);
+            }
+            if (text && x >= LABEL_WIDTH) {
+                g.setFill(Color.BLACK);
+                g.fillText(value ? "1" : "0", x + cell / 2, y + ROW_HEIGHT / 2);
+            }
+        }
+    }
+
+    // One column per pixel, shaded by the share of ones and tinted by the share of parity bits
+    private void drawSamples(GraphicsContext g, PackedDisc disc, double first, double cell, double width, double y) {
+        for (int px = 0; px < width; px++) {
+            long from = (long) (first + px / cell);
+            long to = Math.min(disc.size(), (long) (first + (px + 1) / cell));
+            if (from >= disc.size()) {
+                break;
+            }
+            long step = Math.max(1, (to - from) / SAMPLES);
+            int samples = 0;
+            int ones = 0;
+            int parity = 0;
+            for (long bit = from; bit < Math.max(to, from + 1); bit += step) {
+                samples++;
+                ones += disc.getBit(bit) ? 1 : 0;
+                parity += disc.isParityBit(bit) ? 1 : 0;
+            }
+            Color shade = Color.WHITE.interpolate(DATA_ONE, (double) ones / samples);
+            g.setFill(shade.interpolate(Color.GREEN, 0.6 * parity / samples));
+            g.fillRect(LABEL_WIDTH + px, y, 1, ROW_HEIGHT);
+        }
+    }
+}
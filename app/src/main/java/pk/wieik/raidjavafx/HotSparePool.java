@@ -0,0 +1,137 @@
+package pk.wieik.raidjavafx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Spare discs standing by for an array. As soon as a member fails, a spare takes its place and is
+ * rebuilt on a background thread, from the first stripe to the last, while reads and writes go on;
+ * until the rebuild finishes, reads of the replaced disc are reconstructed from parity as before.
+ * The array is exposed to a second failure only for as long as the rebuild takes.
+ *
+ * <p>A failure while no spare is left is remembered, and the next spare added is promoted at once.
+ */
+public class HotSparePool implements AutoCloseable {
+
+    private final RaidArray array;
+    private final Deque<DiscStore> spares = new ArrayDeque<>();
+    private final Deque<Integer> waiting = new ArrayDeque<>();
+    private final List<DiscStore> retired = new ArrayList<>();
+    private final IntConsumer listener = this::discFailed;
+    private Thread rebuild;
+    private long rebuilds;
+    private RuntimeException lastFailure;
+
+    public HotSparePool(RaidArray array, DiscStore... spares) {
+        this.array = array;
+        for (DiscStore spare : spares) {
+            this.spares.add(spare);
+        }
+        array.addFailureListener(listener);
+    }
+
+    /**
+     * Creates a pool of in-memory spares.
+     */
+    public static HotSparePool create(RaidArray array, int count) {
+        DiscStore[] spares = new DiscStore[count];
+        for (int i = 0; i < count; i++) {
+            spares[i] = new PackedDisc();
+        }
+        return new HotSparePool(array, spares);
+    }
+
+    public synchronized void addSpare(DiscStore spare) {
+        spares.add(spare);
+        promoteNext();
+    }
+
+    public synchronized int getSpareCount() {
+        return spares.size();
+    }
+
+    /**
+     * Failed discs taken out of the array, for the caller to replace or throw away.
+     */
+    public synchronized List<DiscStore> getRetired() {
+        return new ArrayList<>(retired);
+    }
+
+    public synchronized long getRebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * Why the last background rebuild failed, e.g. a second disc failing during it, or null.
+     */
+    public synchronized RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    public synchronized boolean isRebuilding() {
+        return rebuild != null && rebuild.isAlive();
+    }
+
+    /**
+     * Waits until no rebuild runs, including rebuilds started for discs that were waiting.
+     */
+    public void awaitRebuild() throws InterruptedException {
+        Thread running;
+        while ((running = currentRebuild()) != null) {
+            running.join();
+        }
+    }
+
+    private synchronized Thread currentRebuild() {
+        return rebuild;
+    }
+
+    /**
+     * Stops watching the array. A rebuild in progress still runs to its end.
+     */
+    @Override
+    public void close() {
+        array.removeFailureListener(listener);
+    }
+
+    private synchronized void discFailed(int discIndex) {
+        if (!waiting.contains(discIndex)) {
+            waiting.add(discIndex);
+        }
+        promoteNext();
+    }
+
+    // One rebuild at a time: RAID5 cannot have two discs missing anyway
+    private void promoteNext() {
+        if (isRebuilding() || waiting.isEmpty() || spares.isEmpty()) {
+            return;
+        }
+        int discIndex = waiting.poll();
+        DiscStore spare = spares.poll();
+        retired.add(array.replaceDisc(discIndex, spare));
+        rebuild = new Thread(() -> rebuild(discIndex), "raid-spare-rebuild-" + discIndex);
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    private void rebuild(int discIndex) {
+        RuntimeException failure = null;
+        try {
+            array.rebuild(discIndex);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        synchronized (this) {
+            if (failure != null) {
+                lastFailure = failure;
+            } else {
+                rebuilds++;
+            }
+            rebuild = null;
+            promoteNext();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package pk.wieik.raidjavafx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Disc backed by a local file that is memory-mapped in segments. Reads and writes go straight to
+ * the page cache, so the disc survives restarts and may be larger than the heap.
+ */
+public class MappedDisc implements DiscStore, Closeable {
+    // A single MappedByteBuffer is limited to 2 GiB, so large files are mapped in pieces
+    static final long SEGMENT_SIZE = 1L << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long segmentSize;
+    private MappedByteBuffer[] segments;
+    private LongBuffer[] longSegments;
+    private long size;
+    private boolean failed;
+
+    private MappedDisc(Path path, FileChannel channel, long segmentSize) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+        this.size = channel.size() * 8;
+        map();
+    }
+
+    /**
+     * Opens an existing disc file, or creates an empty one.
+     */
+    public static MappedDisc open(Path path) throws IOException {
+        return open(path, SEGMENT_SIZE);
+    }
+
+    static MappedDisc open(Path path, long segmentSize) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new MappedDisc(path, channel, segmentSize);
+    }
+
+    /**
+     * Creates a disc file of the given size in bytes, replacing any previous contents.
+     */
+    public static MappedDisc create(Path path, long bytes) throws IOException {
+        // Sized before anything is mapped, so no mapped file has to be truncated
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (bytes > 0) {
+                channel.write(ByteBuffer.wrap(new byte[1]), bytes - 1);
+            }
+            return new MappedDisc(path, channel, SEGMENT_SIZE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * Grows or shrinks the disc. Where the file cannot be truncated while it is mapped, shrinking
+     * keeps the file length and zeroes everything past the new size instead.
+     */
+    @Override
+    public void setSize(long newSize) {
+        if (newSize < 0) {
+            throw new IllegalArgumentException("Negative disc size: " + newSize);
+        }
+        long bytes = (newSize + 7) / 8;
+        try {
+            if (bytes < channel.size()) {
+                shrink(bytes);
+            } else if (bytes > channel.size()) {
+                // Extending by writing the last byte leaves a sparse, zero-filled file
+                channel.write(ByteBuffer.wrap(new byte[1]), bytes - 1);
+            }
+            size = newSize;
+            map();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot resize disc " + path, e);
+        }
+    }
+
+    @Override
+    public void readWords(long index, long[] dst, int dstOffset, int length) {
+        checkByteRange(index * 8, length * 8L);
+        while (length > 0) {
+            int segment = (int) (index * 8 / segmentSize);
+            int position = (int) ((index * 8 % segmentSize) / 8);
+            int count = Math.min(length, longSegments[segment].limit() - position);
+            longSegments[segment].get(position, dst, dstOffset, count);
+            index += count;
+            dstOffset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void writeWords(long index, long[] src, int srcOffset, int length) {
+        checkByteRange(index * 8, length * 8L);
+        while (length > 0) {
+            int segment = (int) (index * 8 / segmentSize);
+            int position = (int) ((index * 8 % segmentSize) / 8);
+            int count = Math.min(length, longSegments[segment].limit() - position);
+            longSegments[segment].put(position, src, srcOffset, count);
+            index += count;
+            srcOffset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void xorWords(long index, long[] dst, int dstOffset, int length) {
+        checkByteRange(index * 8, length * 8L);
+        for (int i = 0; i < length; i++) {
+            long position = (index + i) * 8;
+            dst[dstOffset + i] ^= segments[(int) (position / segmentSize)].getLong((int) (position % segmentSize));
+        }
+    }
+
+    @Override
+    public void readBytes(long offset, byte[] dst, int dstOffset, int length) {
+        checkByteRange(offset, length);
+        while (length > 0) {
+            int segment = (int) (offset / segmentSize);
+            int position = (int) (offset % segmentSize);
+            int count = Math.min(length, segments[segment].limit() - position);
+            segments[segment].get(position, dst, dstOffset, count);
+            offset += count;
+            dstOffset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void writeBytes(long offset, byte[] src, int srcOffset, int length) {
+        checkByteRange(offset, length);
+        while (length > 0) {
+            int segment = (int) (offset / segmentSize);
+            int position = (int) (offset % segmentSize);
+            int count = Math.min(length, segments[segment].limit() - position);
+            segments[segment].put(position, src, srcOffset, count);
+            offset += count;
+            srcOffset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void zero() {
+        long[] zeros = new long[ParityEngine.BLOCK_WORDS];
+        long wordCount = size / 64;
+        for (long index = 0; index < wordCount; index += zeros.length) {
+            writeWords(index, zeros, 0, (int) Math.min(zeros.length, wordCount - index));
+        }
+        long tail = wordCount * 8;
+        long bytes = (size + 7) / 8;
+        if (tail < bytes) {
+            writeBytes(tail, new byte[(int) (bytes - tail)], 0, (int) (bytes - tail));
+        }
+    }
+
+    /**
+     * Cuts the file to zero length and extends it again, so every block is dropped and the disc
+     * reads back as zeros without writing them. Where a mapped file cannot be truncated the zeros
+     * are written instead, see setSize.
+     */
+    @Override
+    public void truncate() {
+        long oldSize = size;
+        setSize(0);
+        setSize(oldSize);
+    }
+
+    /**
+     * Writes dirty pages back to the file.
+     */
+    @Override
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void shrink(long bytes) throws IOException {
+        // Unmapped only once collected, so this alone does not make truncating safe everywhere
+        segments = new MappedByteBuffer[0];
+        longSegments = new LongBuffer[0];
+        try {
+            channel.truncate(bytes);
+        } catch (IOException e) {
+            // Some platforms refuse to truncate a file while it is mapped; past the new size it
+            // must still read as zeros once the disc grows again
+            ByteBuffer zeros = ByteBuffer.allocate(64 * 1024);
+            for (long position = bytes; position < channel.size(); position += zeros.capacity()) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), channel.size() - position));
+                while (zeros.hasRemaining()) {
+                    channel.write(zeros, position + zeros.position());
+                }
+            }
+        }
+    }
+
+    private void map() throws IOException {
+        long bytes = channel.size();
+        int count = (int) ((bytes + segmentSize - 1) / segmentSize);
+        segments = new MappedByteBuffer[count];
+        longSegments = new LongBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = i * segmentSize;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(segmentSize, bytes - position));
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            longSegments[i] = segments[i].asLongBuffer();
+        }
+    }
+
+    private void checkByteRange(long offset, long length) {
+        if (offset < 0 || length < 0 || (offset + length) * 8 > size + 7) {
+            throw new IndexOutOfBoundsException("Bytes " + offset + " to " + (offset + length)
+                    + " out of bounds for disc size " + size + " bits");
+        }
+    }
+}
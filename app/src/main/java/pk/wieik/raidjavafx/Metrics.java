@@ -0,0 +1,149 @@
+package pk.wieik.raidjavafx;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the array operations. Collection is off unless started with
+ * {@code -Draid.metrics=true} or switched on with setEnabled, and then costs a few atomic adds per
+ * operation; while off an operation only reads one flag. Latencies go into power of two buckets of
+ * nanoseconds, bucket i holding durations below 2^i ns.
+ */
+public final class Metrics {
+
+    public enum Operation {
+        SAVE, PARITY, READ, WRITE, REBUILD, SCRUB, RESHAPE
+    }
+
+    private static final int BUCKETS = 64;
+    private static final Map<Operation, Counters> COUNTERS = new EnumMap<>(Operation.class);
+    private static volatile boolean enabled = Boolean.getBoolean("raid.metrics");
+
+    static {
+        for (Operation operation : Operation.values()) {
+            COUNTERS.put(operation, new Counters());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    private static final class Counters {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder stripes = new LongAdder();
+        final LongAdder reconstructed = new LongAdder();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    static void record(Operation operation, long nanos, long bytes, long stripes, long reconstructed) {
+        Counters counters = COUNTERS.get(operation);
+        counters.count.increment();
+        counters.nanos.add(nanos);
+        counters.bytes.add(bytes);
+        counters.stripes.add(stripes);
+        counters.reconstructed.add(reconstructed);
+        counters.histogram.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+
+    public static long count(Operation operation) {
+        return COUNTERS.get(operation).count.sum();
+    }
+
+    public static long totalNanos(Operation operation) {
+        return COUNTERS.get(operation).nanos.sum();
+    }
+
+    /**
+     * Data bytes saved, read or written; for PARITY the bytes of all discs scanned and for REBUILD
+     * the bytes of the rebuilt disc.
+     */
+    public static long bytes(Operation operation) {
+        return COUNTERS.get(operation).bytes.sum();
+    }
+
+    public static long stripes(Operation operation) {
+        return COUNTERS.get(operation).stripes.sum();
+    }
+
+    /**
+     * Chunks (striped layout) or bits (packed layout) rebuilt from parity because their disc failed.
+     */
+    public static long reconstructed(Operation operation) {
+        return COUNTERS.get(operation).reconstructed.sum();
+    }
+
+    /**
+     * Copy of the latency histogram; entry i counts operations that took less than 2^i ns.
+     */
+    public static long[] histogram(Operation operation) {
+        AtomicLongArray histogram = COUNTERS.get(operation).histogram;
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = histogram.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Upper bound in nanoseconds of the latency below which the given fraction (0 to 1) of the
+     * operations finished, or 0 when none were recorded.
+     */
+    public static long percentileNanos(Operation operation, double fraction) {
+        long[] histogram = histogram(operation);
+        long total = 0;
+        for (long bucket : histogram) {
+            total += bucket;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= rank && seen > 0) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return 0;
+    }
+
+    public static void reset() {
+        for (Counters counters : COUNTERS.values()) {
+            counters.count.reset();
+            counters.nanos.reset();
+            counters.bytes.reset();
+            counters.stripes.reset();
+            counters.reconstructed.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                counters.histogram.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * One line per operation that was recorded at least once.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            long count = count(operation);
+            if (count == 0) {
+                continue;
+            }
+            report.append(String.format("%-8s %8d ops %14d bytes %10d stripes %8d reconstructed  avg %d us  p99 < %d us%n",
+                    operation, count, bytes(operation), stripes(operation), reconstructed(operation),
+                    totalNanos(operation) / count / 1000, percentileNanos(operation, 0.99) / 1000));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,314 @@
+package pk.wieik.raidjavafx;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Disc contents packed 64 bits per long word. Parity positions are kept in a separate bitmap
+ * instead of a flag on every bit, so a disc costs about two bits of heap per stored bit.
+ */
+public class PackedDisc implements DiscStore {
+    private static final long[] EMPTY = new long[0];
+    // Reads and writes 8 bytes of a byte[] as one little-endian long
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private long[] words;
+    private long[] parityWords;
+    private long size;
+    private boolean failed;
+
+    public PackedDisc() {
+        this(0);
+    }
+
+    public PackedDisc(long size) {
+        this.words = new long[wordsFor(size)];
+        this.parityWords = EMPTY;
+        this.size = size;
+    }
+
+    /**
+     * Creates a packed copy of a list of Bits, including their parity flags.
+     */
+    public static PackedDisc fromBits(List<Bit> bits) {
+        PackedDisc disc = new PackedDisc(bits.size());
+        for (int i = 0; i < bits.size(); i++) {
+            Bit bit = bits.get(i);
+            disc.setBit(i, bit.getBit());
+            if (bit.isParityBit()) {
+                disc.setParityBit(i, true);
+            }
+        }
+        return disc;
+    }
+
+    /**
+     * An independent copy of the disc: bits, parity flags and failed state.
+     */
+    public PackedDisc copy() {
+        PackedDisc copy = new PackedDisc();
+        copy.words = words.clone();
+        copy.parityWords = parityWords.length > 0 ? parityWords.clone() : EMPTY;
+        copy.size = size;
+        copy.failed = failed;
+        return copy;
+    }
+
+    /**
+     * Expands the disc back into a list of Bits, e.g. for code still working on List<Bit>.
+     */
+    public List<Bit> toBits() {
+        List<Bit> bits = new ArrayList<>((int) size);
+        for (long i = 0; i < size; i++) {
+            Bit bit = new Bit(getBit(i));
+            bit.setParityBit(isParityBit(i));
+            bits.add(bit);
+        }
+        return bits;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean getBit(long index) {
+        checkIndex(index);
+        return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    public void setBit(long index, boolean bit) {
+        checkIndex(index);
+        int word = (int) (index >>> 6);
+        if (bit) {
+            words[word] |= 1L << index;
+        } else {
+            words[word] &= ~(1L << index);
+        }
+    }
+
+    public boolean isParityBit(long index) {
+        checkIndex(index);
+        int word = (int) (index >>> 6);
+        return word < parityWords.length && (parityWords[word] & (1L << index)) != 0;
+    }
+
+    public void setParityBit(long index, boolean isParityBit) {
+        checkIndex(index);
+        int word = (int) (index >>> 6);
+        if (isParityBit) {
+            parityWords()[word] |= 1L << index;
+        } else if (word < parityWords.length) {
+            parityWords[word] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Appends a bit at the end of the disc, growing the word array when needed.
+     */
+    public void add(boolean bit) {
+        long index = size;
+        setSize(size + 1);
+        setBit(index, bit);
+    }
+
+    /**
+     * Grows or shrinks the disc. Bits past the old size read as zero after growing.
+     */
+    @Override
+    public void setSize(long newSize) {
+        if (newSize < 0) {
+            throw new IllegalArgumentException("Negative disc size: " + newSize);
+        }
+        int newWordCount = wordsFor(newSize);
+        if (newWordCount > words.length) {
+            // Grow geometrically so repeated add() stays amortized O(1)
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(newWordCount, words.length + (words.length >> 1)));
+            words = Arrays.copyOf(words, capacity);
+            if (parityWords.length > 0) {
+                parityWords = Arrays.copyOf(parityWords, capacity);
+            }
+        }
+        if (newSize < size) {
+            clearFrom(words, newSize);
+            clearFrom(parityWords, newSize);
+            // Give memory back after a large shrink, e.g. the final trim of a streamed save
+            if (newWordCount < words.length / 2) {
+                words = Arrays.copyOf(words, newWordCount);
+                parityWords = Arrays.copyOf(parityWords, Math.min(parityWords.length, newWordCount));
+            }
+        }
+        size = newSize;
+    }
+
+    /**
+     * Number of words in use, i.e. the words that hold bits below size().
+     */
+    public int wordCount() {
+        return wordsFor(size);
+    }
+
+    public long getWord(int index) {
+        return words[index];
+    }
+
+    public void setWord(int index, long word) {
+        words[index] = word;
+    }
+
+    @Override
+    public void readWords(long index, long[] dst, int dstOffset, int length) {
+        checkWordRange(index, length);
+        System.arraycopy(words, (int) index, dst, dstOffset, length);
+    }
+
+    @Override
+    public void writeWords(long index, long[] src, int srcOffset, int length) {
+        checkWordRange(index, length);
+        System.arraycopy(src, srcOffset, words, (int) index, length);
+    }
+
+    @Override
+    public void xorWords(long index, long[] dst, int dstOffset, int length) {
+        checkWordRange(index, length);
+        ParityEngine.xor(words, (int) index, dst, dstOffset, length);
+    }
+
+    @Override
+    public void zero() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Copies length bytes starting at byte offset of the disc into dst. Byte k of the disc holds
+     * bits 8k to 8k+7, least significant bit first.
+     */
+    @Override
+    public void readBytes(long offset, byte[] dst, int dstOffset, int length) {
+        checkByteRange(offset, length);
+        int i = 0;
+        // Leading bytes up to the next word boundary
+        for (; i < length && ((offset + i) & 7) != 0; i++) {
+            dst[dstOffset + i] = getByte(offset + i);
+        }
+        for (; i + 8 <= length; i += 8) {
+            LONGS.set(dst, dstOffset + i, words[(int) ((offset + i) >>> 3)]);
+        }
+        for (; i < length; i++) {
+            dst[dstOffset + i] = getByte(offset + i);
+        }
+    }
+
+    /**
+     * Copies length bytes of src into the disc starting at byte offset.
+     */
+    @Override
+    public void writeBytes(long offset, byte[] src, int srcOffset, int length) {
+        checkByteRange(offset, length);
+        int i = 0;
+        for (; i < length && ((offset + i) & 7) != 0; i++) {
+            setByte(offset + i, src[srcOffset + i]);
+        }
+        for (; i + 8 <= length; i += 8) {
+            words[(int) ((offset + i) >>> 3)] = (long) LONGS.get(src, srcOffset + i);
+        }
+        for (; i < length; i++) {
+            setByte(offset + i, src[srcOffset + i]);
+        }
+    }
+
+    /**
+     * Backing data words; only the first wordCount() entries are meaningful.
+     */
+    long[] words() {
+        return words;
+    }
+
+    /**
+     * Backing parity bitmap, allocated on first use.
+     */
+    long[] parityWords() {
+        if (parityWords.length < words.length) {
+            parityWords = Arrays.copyOf(parityWords, words.length);
+        }
+        return parityWords;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder((int) Math.min(size, Integer.MAX_VALUE - 8));
+        for (long i = 0; i < size; i++) {
+            builder.append(getBit(i) ? '1' : '0');
+        }
+        return builder.toString();
+    }
+
+    static int wordsFor(long bits) {
+        long count = (bits + 63) >>> 6;
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Disc too large: " + bits + " bits");
+        }
+        return (int) count;
+    }
+
+    private static void clearFrom(long[] array, long fromBit) {
+        int word = (int) (fromBit >>> 6);
+        if (word >= array.length) {
+            return;
+        }
+        if ((fromBit & 63) != 0) {
+            array[word] &= (1L << fromBit) - 1;
+            word++;
+        }
+        Arrays.fill(array, word, array.length, 0L);
+    }
+
+    private byte getByte(long offset) {
+        return (byte) (words[(int) (offset >>> 3)] >>> ((offset & 7) << 3));
+    }
+
+    private void setByte(long offset, byte value) {
+        int word = (int) (offset >>> 3);
+        int shift = (int) (offset & 7) << 3;
+        words[word] = (words[word] & ~(0xFFL << shift)) | ((value & 0xFFL) << shift);
+    }
+
+    private void checkWordRange(long index, int length) {
+        if (index < 0 || length < 0 || index + length > wordCount()) {
+            throw new IndexOutOfBoundsException("Words " + index + " to " + (index + length)
+                    + " out of bounds for disc size " + size + " bits");
+        }
+    }
+
+    private void checkByteRange(long offset, int length) {
+        if (offset < 0 || length < 0 || (offset + length) * 8 > size) {
+            throw new IndexOutOfBoundsException("Bytes " + offset + " to " + (offset + length)
+                    + " out of bounds for disc size " + size + " bits");
+        }
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for disc size " + size);
+        }
+    }
+}
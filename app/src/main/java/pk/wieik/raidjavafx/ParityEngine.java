@@ -0,0 +1,118 @@
+package pk.wieik.raidjavafx;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Word-wide XOR kernels for parity generation and rebuild. Every call XORs 64 bits per long,
+ * and when the build included the Vector API kernels ({@code mvn -Draid.vector}) and the
+ * jdk.incubator.vector module is available (run with {@code --add-modules jdk.incubator.vector})
+ * several longs per instruction. The vector path can be switched off at run time with
+ * {@code -Draid.vector=false}; the scalar loops are used whenever it is unavailable.
+ */
+public final class ParityEngine {
+
+    /**
+     * Number of words processed per block, small enough for the parity block to stay in cache.
+     */
+    public static final int BLOCK_WORDS = 2048;
+
+    private static final XorKernels VECTOR = loadVectorKernels();
+    // Reads 8 bytes of a byte[] as one little-endian long, the same packing discs use
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private ParityEngine() {
+    }
+
+    public static boolean isVectorized() {
+        return VECTOR != null;
+    }
+
+    /**
+     * dst[dstOffset..] ^= src[srcOffset..] for length words.
+     */
+    public static void xor(long[] src, int srcOffset, long[] dst, int dstOffset, int length) {
+        if (VECTOR != null) {
+            VECTOR.xor(src, srcOffset, dst, dstOffset, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] ^= src[srcOffset + i];
+        }
+    }
+
+    /**
+     * dst[dstOffset..] ^= src[srcOffset..] & mask[dstOffset..] for length words. The mask is indexed
+     * like dst, so a disc's parity bitmap selects which of its bits take the XOR.
+     */
+    public static void xorMasked(long[] src, int srcOffset, long[] mask, long[] dst, int dstOffset, int length) {
+        if (VECTOR != null) {
+            VECTOR.xorMasked(src, srcOffset, mask, dst, dstOffset, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] ^= src[srcOffset + i] & mask[dstOffset + i];
+        }
+    }
+
+    /**
+     * dst[dstOffset..] ^= the length words packed little-endian in src starting at srcOffset.
+     */
+    public static void xor(byte[] src, int srcOffset, long[] dst, int dstOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOffset + i] ^= (long) LONGS.get(src, srcOffset + i * 8);
+        }
+    }
+
+    /**
+     * dst[dstOffset..] ^= src[srcOffset..] for length bytes, 8 bytes per step where possible.
+     */
+    public static void xor(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            long word = (long) LONGS.get(dst, dstOffset + i) ^ (long) LONGS.get(src, srcOffset + i);
+            LONGS.set(dst, dstOffset + i, word);
+        }
+        for (; i < length; i++) {
+            dst[dstOffset + i] ^= src[srcOffset + i];
+        }
+    }
+
+    /**
+     * Copies length bytes starting at byte srcOffset of the little-endian packed words into dst.
+     */
+    static void copy(long[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        int i = 0;
+        if ((srcOffset & 7) == 0) {
+            for (; i + 8 <= length; i += 8) {
+                LONGS.set(dst, dstOffset + i, src[(srcOffset + i) >>> 3]);
+            }
+        }
+        for (; i < length; i++) {
+            int offset = srcOffset + i;
+            dst[dstOffset + i] = (byte) (src[offset >>> 3] >>> ((offset & 7) << 3));
+        }
+    }
+
+    private static XorKernels loadVectorKernels() {
+        if (!Boolean.parseBoolean(System.getProperty("raid.vector", "true"))) {
+            return null;
+        }
+        // The incubator module is only resolved when requested on the command line
+        Module vector = ModuleLayer.boot().findModule("jdk.incubator.vector").orElse(null);
+        if (vector == null) {
+            return null;
+        }
+        // Not required by module-info, so a named module has to add the read edge itself
+        ParityEngine.class.getModule().addReads(vector);
+        try {
+            XorKernels kernels = (XorKernels) Class.forName("pk.wieik.raidjavafx.VectorXor")
+                    .getDeclaredConstructor().newInstance();
+            return kernels.lanes() > 1 ? kernels : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Built without -Draid.vector
+            return null;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package pk.wieik.raidjavafx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Walks the stripes of an array and checks that the XOR of all chunks of each stripe, parity
+ * included, is zero, i.e. that the stored parity still matches the data. Mismatches are recorded
+ * and, when repair is on, fixed: if the array keeps chunk checksums the chunk that fails its
+ * checksum is reconstructed, otherwise the parity is recomputed from the data chunks like
+ * sumControl, as single parity alone cannot tell which chunk went bad.
+ *
+ * <p>A scrub stays out of the way of foreground I/O: it does not start a stripe while reads or
+ * writes are in progress (waiting at most maxYieldMillis, so it still makes progress under constant
+ * load), only takes a stripe lock that is free at that moment, and keeps its reads under the
+ * configured bandwidth. Stripes are skipped while a disc has failed, as their parity cannot be
+ * checked against the missing chunks, and while the array is being reshaped.
+ */
+public class ParityScrubber {
+    public static final long DEFAULT_MAX_YIELD_MILLIS = 100;
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RaidArray array;
+    private final long bytesPerSecond;
+    private final boolean repair;
+    private final long maxYieldNanos;
+
+    private final List<Long> mismatches = new ArrayList<>();
+    private volatile long stripesChecked;
+    private volatile long stripesSkipped;
+    private volatile long repaired;
+    private volatile boolean stopped;
+    private Thread thread;
+
+    /**
+     * Creates a scrubber reading at most bytesPerSecond (0 for no limit) from the array's discs.
+     */
+    public ParityScrubber(RaidArray array, long bytesPerSecond, boolean repair) {
+        this(array, bytesPerSecond, repair, DEFAULT_MAX_YIELD_MILLIS);
+    }
+
+    public ParityScrubber(RaidArray array, long bytesPerSecond, boolean repair, long maxYieldMillis) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Bandwidth must not be negative, got " + bytesPerSecond);
+        }
+        this.array = array;
+        this.bytesPerSecond = bytesPerSecond;
+        this.repair = repair;
+        this.maxYieldNanos = TimeUnit.MILLISECONDS.toNanos(maxYieldMillis);
+    }
+
+    public long getStripesChecked() {
+        return stripesChecked;
+    }
+
+    public long getStripesSkipped() {
+        return stripesSkipped;
+    }
+
+    public long getRepaired() {
+        return repaired;
+    }
+
+    /**
+     * Stripes whose parity did not match, in the order they were found.
+     */
+    public synchronized List<Long> getMismatches() {
+        return new ArrayList<>(mismatches);
+    }
+
+    /**
+     * Scrubs the whole array once on a background daemon thread.
+     */
+    public synchronized void start() {
+        if (thread != null && thread.isAlive()) {
+            throw new IllegalStateException("Scrub already running");
+        }
+        stopped = false;
+        thread = new Thread(this::scrub, "raid-scrub");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops a background scrub after the current stripe and waits for it.
+     */
+    public void stop() throws InterruptedException {
+        stopped = true;
+        join();
+    }
+
+    /**
+     * Waits for a background scrub to finish.
+     */
+    public void join() throws InterruptedException {
+        Thread running;
+        synchronized (this) {
+            running = thread;
+        }
+        if (running != null) {
+            running.join();
+        }
+    }
+
+    /**
+     * Scrubs the whole array once on the calling thread and returns the number of mismatches found.
+     */
+    public long scrub() {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.SCRUB);
+        StripeLayout layout = array.getLayout();
+        DiscStore[] discs = array.discs();
+        long stripeBytes = (long) layout.getChunkSize() * discs.length;
+        long[] chunk = new long[layout.getChunkWords()];
+        long stripes = array.capacity() / layout.getStripeSize();
+        long found = 0;
+        long checked = 0;
+        long start = System.nanoTime();
+
+        for (long stripe = 0; stripe < stripes && !stopped; stripe++) {
+            waitForIdle();
+            StampedLock lock = array.lockFor(stripe);
+            long stamp = acquire(lock);
+            if (stamp == 0) {
+                break;
+            }
+            try {
+                if (discs[0].size() / 8 / layout.getChunkSize() <= stripe) {
+                    // The array was saved with less data in the meantime
+                    break;
+                }
+                if (array.getLayout() != layout) {
+                    // Reshaped onto more discs in the meantime
+                    break;
+                }
+                if (array.isReshaping() || Cluster.failedDisc(discs) >= 0) {
+                    stripesSkipped++;
+                    continue;
+                }
+                if (!parityMatches(discs, layout, stripe, chunk)) {
+                    found++;
+                    synchronized (this) {
+                        mismatches.add(stripe);
+                    }
+                    if (repair) {
+                        repairStripe(discs, layout, stripe);
+                        repaired++;
+                    }
+                }
+                checked++;
+                stripesChecked++;
+            } finally {
+                lock.unlock(stamp);
+            }
+            throttle(start, checked * stripeBytes);
+        }
+        event.finish(checked * stripeBytes, checked, 0);
+        return found;
+    }
+
+    // With checksums the bad chunk is known; without them the parity is assumed to be wrong
+    private void repairStripe(DiscStore[] discs, StripeLayout layout, long stripe) {
+        ChunkChecksums checksums = array.getChecksums();
+        int corrupt = checksums != null ? checksums.findCorrupt(discs, stripe) : -1;
+        if (corrupt >= 0) {
+            checksums.repair(discs, stripe, corrupt);
+            return;
+        }
+        Cluster.sumControlStripes(discs, layout, stripe, stripe + 1);
+        if (checksums != null) {
+            checksums.update(discs, stripe, layout.parityDisc(stripe));
+        }
+    }
+
+    private static boolean parityMatches(DiscStore[] discs, StripeLayout layout, long stripe, long[] chunk) {
+        long chunkIndex = stripe * layout.getChunkWords();
+        Arrays.fill(chunk, 0L);
+        for (DiscStore disc : discs) {
+            disc.xorWords(chunkIndex, chunk, 0, chunk.length);
+        }
+        for (long word : chunk) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Lets reads and writes in progress finish first, but only for so long
+    private void waitForIdle() {
+        long deadline = System.nanoTime() + maxYieldNanos;
+        while (array.isBusy() && System.nanoTime() < deadline && !stopped) {
+            LockSupport.parkNanos(BACKOFF_NANOS);
+        }
+    }
+
+    // Takes the stripe lock only while nobody else holds it; 0 when stopped meanwhile
+    private long acquire(StampedLock lock) {
+        while (!stopped) {
+            long stamp = repair ? lock.tryWriteLock() : lock.tryReadLock();
+            if (stamp != 0) {
+                return stamp;
+            }
+            LockSupport.parkNanos(BACKOFF_NANOS);
+        }
+        return 0;
+    }
+
+    // Sleeps until the bytes read so far fit the bandwidth since start
+    private void throttle(long start, long bytes) {
+        if (bytesPerSecond == 0) {
+            return;
+        }
+        long due = start + (long) (bytes * 1e9 / bytesPerSecond);
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0 && !stopped) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package pk.wieik.raidjavafx;
+
+/**
+ * Told how far a long-running array operation got, in units of work done out of total. The
+ * listener may cancel the operation by throwing, e.g. a CancellationException; the operation then
+ * stops at the next report and leaves the discs as described by the method it was passed to.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    ProgressListener NONE = (done, total) -> { };
+
+    void progress(long done, long total);
+}
@@ -0,0 +1,465 @@
+package pk.wieik.raidjavafx;
+
+import javafx.application.Application;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+public class RAID5App extends Application {
+
+    private TextField inputDataField;
+    private TextField numOfDiscsField;
+    private TextField inputFilePathField;
+    private TextField outputFilePathField;
+    private TextField hotSparesField;
+    // Spares left to take the place of the next failed disc. Only simulated: the discs shown use the
+    // bit layout rather than a RaidArray, so HotSparePool does not apply
+    private int hotSpares;
+    private VBox discContainer;
+    private DiscView discView;
+    private HBox discButtons;
+    private Button saveDataButton;
+    private Button readDataButton;
+    private HBox taskBox;
+    private ProgressBar taskProgress;
+    private Label taskStatus;
+    private Button cancelTaskButton;
+    private PackedDisc[] listOfDiscs;
+    // One operation at a time, so a cancelled task has stopped before the next one starts
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "raid-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Array operation run off the JavaFX Application Thread, reporting to the given listener.
+     */
+    private interface ArrayOperation<V> {
+        V run(ProgressListener progress) throws Exception;
+    }
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+
+    @Override
+    public void start(Stage primaryStage) {
+        primaryStage.setTitle("RAID 5 Data Storage");
+
+        GridPane grid = new GridPane();
+        grid.setPadding(new Insets(10, 10, 10, 10));
+        grid.setVgap(20);
+        grid.setHgap(10);
+        grid.setStyle("-fx-background-color: #95c3be;");
+        grid.setAlignment(Pos.CENTER);
+
+        Label inputDataLabel = new Label("Input Data:");
+        GridPane.setConstraints(inputDataLabel, 0, 0);
+        inputDataField = new TextField();
+        inputDataField.setMinWidth(300);
+        inputDataField.setPromptText("Enter binary input data here");
+        GridPane.setConstraints(inputDataField, 1, 0);
+
+        Label numOfDiscsLabel = new Label("Number of Discs:");
+        GridPane.setConstraints(numOfDiscsLabel, 0, 1);
+        numOfDiscsField = new TextField();
+        numOfDiscsLabel.setMaxWidth(200);
+        numOfDiscsField.setPromptText("Enter num between 2 and 6");
+        GridPane.setConstraints(numOfDiscsField, 1, 1);
+
+        Label inputFilePathLabel = new Label("Input File Path:");
+        GridPane.setConstraints(inputFilePathLabel, 0, 2);
+        inputFilePathField = new TextField();
+        inputFilePathField.setMinWidth(300);
+        inputFilePathField.setPromptText("Enter file path from resource folder");
+        GridPane.setConstraints(inputFilePathField, 1, 2);
+
+        Label outputFilePathLabel = new Label("Output File Path:");
+        GridPane.setConstraints(outputFilePathLabel, 0, 3);
+        outputFilePathField = new TextField();
+        outputFilePathField.setMinWidth(300);
+        outputFilePathField.setPromptText("Enter file path from resource folder");
+        GridPane.setConstraints(outputFilePathField, 1, 3);
+
+        Label hotSparesLabel = new Label("Hot Spares:");
+        GridPane.setConstraints(hotSparesLabel, 0, 4);
+        hotSparesField = new TextField();
+        hotSparesField.setPromptText("Spare discs rebuilt automatically on failure, 0 by default");
+        GridPane.setConstraints(hotSparesField, 1, 4);
+
+        saveDataButton = new Button("Save Data to Discs");
+        saveDataButton.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white;");
+        saveDataButton.setOnAction(e -> saveDataToDiscs());
+        GridPane.setConstraints(saveDataButton, 1, 5);
+
+        readDataButton = new Button("Read Data from Discs");
+        readDataButton.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white;");
+        readDataButton.setOnAction(e -> readDataFromDiscs());
+        GridPane.setConstraints(readDataButton, 1, 6);
+
+        discView = new DiscView();
+        Button zoomInButton = new Button("Zoom In");
+        zoomInButton.setOnAction(e -> discView.setCellWidth(discView.getCellWidth() * 2));
+        Button zoomOutButton = new Button("Zoom Out");
+        zoomOutButton.setOnAction(e -> discView.setCellWidth(discView.getCellWidth() / 2));
+        Button zoomFitButton = new Button("Fit");
+        zoomFitButton.setOnAction(e -> discView.zoomToFit());
+        HBox zoomBox = new HBox(8, zoomInButton, zoomOutButton, zoomFitButton);
+        zoomBox.setAlignment(Pos.CENTER);
+        discButtons = new HBox(8);
+        discButtons.setAlignment(Pos.CENTER);
+
+        taskProgress = new ProgressBar(0);
+        taskProgress.setPrefWidth(300);
+        taskStatus = new Label();
+        cancelTaskButton = new Button("Cancel");
+        taskBox = new HBox(10, taskProgress, taskStatus, cancelTaskButton);
+        taskBox.setAlignment(Pos.CENTER_LEFT);
+        taskBox.setVisible(false);
+        GridPane.setConstraints(taskBox, 0, 7, 2, 1);
+
+        discContainer = new VBox(15, discView, discButtons, zoomBox);
+        discContainer.setVisible(false);
+        GridPane.setConstraints(discContainer, 0, 8, 2, 1);
+
+        grid.getChildren().addAll(inputDataLabel, inputDataField, numOfDiscsLabel,
+                numOfDiscsField, inputFilePathLabel, inputFilePathField, outputFilePathLabel, outputFilePathField,
+                hotSparesLabel, hotSparesField, saveDataButton, readDataButton, taskBox, discContainer);
+
+        Scene scene = new Scene(grid, 1000, 800);
+        primaryStage.setScene(scene);
+        primaryStage.show();
+    }
+
+    private void saveDataToDiscs() {
+        String inputData = inputDataField.getText();
+        String inputFilePath = getResourceAbsolutePath(inputFilePathField.getText());
+        String numOfDiscs = numOfDiscsField.getText();
+
+        if(inputFilePath!=null){
+            if(!inputFilePathField.getText().isEmpty()){
+                // if bad file format
+                if (isFilePath(inputFilePath)) {
+                    try {
+                        inputData = new String(Files.readAllBytes(Paths.get(inputFilePath)));
+                        inputDataField.setText(inputData);
+                    } catch (IOException e) {
+                        showErrorMessage("Error reading input file.");
+                        return;
+                    }
+                }else{
+                    showErrorMessage("Invalid input file path. Please enter a valid path that ends in '.txt'.");
+                    clearTextField(inputFilePathField);
+                }
+            }
+        }else{
+            showErrorMessage("File not found. Reading from user input");
+            clearTextField(inputFilePathField);
+        }
+        // if empty then don't check the file
+
+        if (!isValidBinary(inputData)) {
+            showErrorMessage("Invalid input data. Please enter binary values (0 or 1) only. Remember that binary input must start with 1");
+            clearTextField(inputDataField);
+            return;
+        }
+
+        if (!isValidInteger(numOfDiscs)) {
+            showErrorMessage("Invalid number of discs. Please enter an integer number in range 2-6.");
+            clearTextField(numOfDiscsField);
+            return;
+        }
+        int numberOfDiscs = Integer.parseInt(numOfDiscs);
+
+        String spares = hotSparesField.getText();
+        if (!spares.isEmpty() && !spares.matches("[0-9]")) {
+            showErrorMessage("Invalid number of hot spares. Please enter an integer number in range 0-9.");
+            clearTextField(hotSparesField);
+            return;
+        }
+        int numberOfSpares = spares.isEmpty() ? 0 : Integer.parseInt(spares);
+
+        Disc disc = new Disc(numberOfDiscs, inputData);
+        runTask("Saving", inputData.length(), progress -> {
+            PackedDisc bitList = Cluster.toPackedDisc(disc);
+            PackedDisc[] discs = Cluster.createDiscArray(disc);
+            Cluster.saveData(bitList, discs, progress);
+            return discs;
+        }, discs -> {
+            listOfDiscs = discs;
+            hotSpares = numberOfSpares;
+            updateDiscDisplay();
+        });
+    }
+
+    private void toggleDiscData(int discIndex) {
+        // Check if any other disc is already in "Restore Data" state
+        for (int i = 0; i < listOfDiscs.length; i++) {
+            if (listOfDiscs[i].isFailed() && discIndex != i) {
+                showErrorMessage("Cannot destroy another disc while one disc is in 'Restore Data' state.");
+                return;
+            }
+        }
+
+        if (!listOfDiscs[discIndex].isFailed()) {
+            Cluster.simulateDamage(new Disc(discIndex), listOfDiscs);
+            updateDiscDisplay();
+            // A hot spare takes the place of the failed disc without waiting for "Restore Data";
+            // it is used up only once the rebuild onto it has finished
+            if (hotSpares > 0) {
+                restoreDisc(discIndex, "Rebuilding disc " + (discIndex + 1) + " on a hot spare, "
+                        + (hotSpares - 1) + " left", () -> hotSpares--);
+            }
+        } else {
+            restoreDisc(discIndex, "Restoring disc " + (discIndex + 1), () -> { });
+        }
+    }
+
+    // Recovery rewrites parity on every disc, so it works on copies while the view keeps drawing
+    // the originals; the rebuilt array replaces them only once the task has succeeded
+    private void restoreDisc(int discIndex, String title, Runnable onRestored) {
+        PackedDisc[] discs = new PackedDisc[listOfDiscs.length];
+        for (int i = 0; i < discs.length; i++) {
+            discs[i] = listOfDiscs[i].copy();
+        }
+        long dataSize = inputDataField.getText().length();
+        runTask(title, dataSize,
+                progress -> Cluster.recoverData(discs, discIndex, dataSize, progress),
+                restoredData -> {
+                    listOfDiscs = discs;
+                    onRestored.run();
+                    updateDiscDisplay();
+                });
+    }
+
+    // The view draws only what is on screen, so this stays cheap for any size of discs
+    private void updateDiscDisplay() {
+        discView.setDiscs(listOfDiscs);
+        if (discButtons.getChildren().size() != listOfDiscs.length) {
+            discButtons.getChildren().clear();
+            for (int i = 0; i < listOfDiscs.length; i++) {
+                Button destroyRestoreButton = new Button();
+                destroyRestoreButton.setStyle("-fx-background-color: #f44336; -fx-text-fill: white;");
+                int discIndex = i;
+                destroyRestoreButton.setOnAction(e -> toggleDiscData(discIndex));
+                discButtons.getChildren().add(destroyRestoreButton);
+            }
+        }
+        for (int i = 0; i < listOfDiscs.length; i++) {
+            Button destroyRestoreButton = (Button) discButtons.getChildren().get(i);
+            destroyRestoreButton.setText((listOfDiscs[i].isFailed() ? "Restore Disc " : "Destroy Disc ") + (i + 1));
+        }
+        discContainer.setVisible(true);
+    }
+
+
+
+    private void readDataFromDiscs() {
+        if (listOfDiscs == null) {
+            showErrorMessage("No data to read from.");
+            return;
+        }
+
+        // Check the output file path before the data is read
+        String outputFilePath = getResourceAbsolutePath(outputFilePathField.getText());
+        if (outputFilePath != null) {
+            if (!isFilePath(outputFilePath)) {
+                showErrorMessage("Invalid output file path. Please enter a valid path that ends in '.txt'.");
+                clearTextField(outputFilePathField);
+                outputFilePath = null;
+            }
+        } else {
+            showErrorMessage("Incorrect file path provided. Please enter a valid file path.");
+            clearTextField(outputFilePathField);
+        }
+
+        PackedDisc[] discs = listOfDiscs;
+        long dataSize = inputDataField.getText().length();
+        String outputPath = outputFilePath;
+        runTask("Reading", dataSize, progress -> {
+            // Recover the data
+            PackedDisc recoveredData = Cluster.readData(discs, dataSize, progress);
+            String dataString = recoveredData.toString();
+            if (outputPath == null) {
+                return dataString;
+            }
+
+            // Create a message with all partitioned data
+            StringBuilder partitionedDataMessage = new StringBuilder();
+            for (int i = 0; i < discs.length; i++) {
+                partitionedDataMessage.append("Disc ").append(i + 1).append(" - ").append(discs[i]).append("\n");
+            }
+
+            // Combine recovered data with partitioned data message
+            String outputContent = dataString + "\n\n" + partitionedDataMessage;
+            try {
+                Path path = Paths.get(outputPath);
+                if (!Files.exists(path)) {
+                    Files.createFile(path);
+                }
+                Files.write(path, outputContent.getBytes());
+            } catch (IOException e) {
+                throw new IOException("Error writing to output file.", e);
+            }
+            return dataString + "\nSaved data to " + outputPath;
+        }, message -> new AlertBox().display("Recovered Data", message));
+    }
+
+    /**
+     * Runs an operation on the worker thread while the progress bar shows how far it got, at what
+     * rate in bits of input data, and how long it should still take.
+     */
+    private <V> void runTask(String title, long dataBits, ArrayOperation<V> operation, Consumer<V> onSuccess) {
+        long start = System.nanoTime();
+        Task<V> task = new Task<>() {
+            @Override
+            protected V call() throws Exception {
+                return operation.run((done, total) -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    updateProgress(done, total);
+                    updateMessage(progressMessage(title, dataBits, done, total, System.nanoTime() - start));
+                });
+            }
+        };
+        task.setOnSucceeded(e -> {
+            finishTask(title + " done");
+            onSuccess.accept(task.getValue());
+        });
+        task.setOnCancelled(e -> {
+            finishTask(title + " cancelled");
+            if (listOfDiscs != null) {
+                updateDiscDisplay();
+            }
+        });
+        task.setOnFailed(e -> {
+            finishTask(title + " failed");
+            Throwable failure = task.getException();
+            showErrorMessage(failure.getMessage() != null ? failure.getMessage() : failure.toString());
+        });
+
+        taskProgress.progressProperty().bind(task.progressProperty());
+        taskStatus.textProperty().bind(task.messageProperty());
+        cancelTaskButton.setOnAction(e -> task.cancel());
+        cancelTaskButton.setDisable(false);
+        taskBox.setVisible(true);
+        setControlsDisabled(true);
+        worker.submit(task);
+    }
+
+    private void finishTask(String status) {
+        taskProgress.progressProperty().unbind();
+        taskStatus.textProperty().unbind();
+        taskStatus.setText(status);
+        cancelTaskButton.setDisable(true);
+        setControlsDisabled(false);
+    }
+
+    private void setControlsDisabled(boolean disabled) {
+        saveDataButton.setDisable(disabled);
+        readDataButton.setDisable(disabled);
+        discButtons.setDisable(disabled);
+    }
+
+    static String progressMessage(String title, long dataBits, long done, long total, long elapsedNanos) {
+        double fraction = total > 0 ? (double) done / total : 1;
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder message = new StringBuilder(title).append(": ").append((int) (fraction * 100)).append('%');
+        if (seconds > 0 && fraction > 0) {
+            message.append(String.format(", %.1f Mbit/s", fraction * dataBits / seconds / 1e6));
+            message.append(String.format(", %.0f s left", seconds * (1 - fraction) / fraction));
+        }
+        return message.toString();
+    }
+
+    private boolean isValidBinary(String input) {
+        return input.matches("1[01]+");
+    }
+
+    private boolean isValidInteger(String input) {
+        return input.matches("[2-6]");
+    }
+
+    private boolean isFilePath(String input){
+        return input.endsWith(".txt");
+    }
+
+    private void showErrorMessage(String message) {
+        new AlertBox().display("Error", message);
+    }
+
+    private void clearTextField(TextField textField) {
+        textField.setText("");
+    }
+
+    @Override
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    public static String getResourceAbsolutePath(String resourceName) {
+        // Get the class loader for this class
+        ClassLoader classLoader = RAID5App.class.getClassLoader();
+
+        // Get the URL of the resource
+        java.net.URL resourceUrl = classLoader.getResource(resourceName);
+
+        // Convert URL to Path and then to absolute path
+        Path resourcePath = null;
+        try {
+            if (resourceUrl != null) {
+                resourcePath = Paths.get(resourceUrl.toURI());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return resourcePath != null ? resourcePath.toAbsolutePath().toString() : null;
+    }
+}
+
+class AlertBox {
+
+    public void display(String title, String message) {
+        Stage window = new Stage();
+        window.setTitle(title);
+        window.setMinWidth(250);
+        window.setMinHeight(150);
+
+        Label label = new Label();
+        label.setText(message);
+        label.setStyle("-fx-font-size: 16px;");
+
+        VBox layout = new VBox(10);
+        layout.getChildren().addAll(label);
+        layout.setPadding(new Insets(10, 10, 10, 10));
+        layout.setStyle("-fx-alignment: center");
+
+        Scene scene = new Scene(layout);
+        window.setScene(scene);
+        window.showAndWait();
+    }
+
+
+
+}
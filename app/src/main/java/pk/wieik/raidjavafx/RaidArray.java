@@ -0,0 +1,923 @@
+package pk.wieik.raidjavafx;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A striped RAID5 array that many threads can use at once. Stripes are guarded by a fixed pool of
+ * StampedLocks, stripe s by lock s % lockCount, so reads and writes of different stripes run in
+ * parallel while the read-modify-write of a stripe's parity is never interleaved with another
+ * access to that stripe. Reads of in-memory discs first try an optimistic stamp and only take the
+ * read lock when a writer got in between. Operations on the whole array take every lock.
+ *
+ * <p>With enableChecksums every chunk also gets a CRC32C, and reads repair chunks that were
+ * silently corrupted, see ChunkChecksums.
+ *
+ * <p>snapshot takes a copy-on-write view of the array: a stripe is copied for the live snapshots
+ * only when it is first overwritten.
+ *
+ * <p>startReshape grows the array onto one more disc while it stays in use. Data below a moving
+ * checkpoint is in the new layout and the rest is still in the old one, and every stripe
+ * operation checks where the checkpoint is once it holds its lock.
+ *
+ * <p>Each stripe is updated atomically; a read or write spanning several stripes is not atomic as a
+ * whole.
+ */
+public class RaidArray {
+    public static final int DEFAULT_LOCKS = 64;
+    public static final int RESHAPE_BATCH_BYTES = 1024 * 1024;
+
+    // Replaced only under lockAll
+    private volatile DiscStore[] discs;
+    private volatile StripeLayout layout;
+    // Also replaced by a reshape batch holding the locks of every stripe whose layout that changes
+    private volatile Reshape reshape;
+    // Whether every disc is on the heap, see readStripe; updated whenever a disc is replaced
+    private volatile boolean optimisticReads;
+    private final StampedLock[] locks;
+    // Reads and writes in progress, so background work can stay out of their way
+    private final AtomicInteger foreground = new AtomicInteger();
+    private volatile ChunkChecksums checksums;
+    private volatile WriteIntentBitmap writeIntent;
+    private final List<IntConsumer> failureListeners = new CopyOnWriteArrayList<>();
+    private final List<Snapshot> snapshots = new CopyOnWriteArrayList<>();
+
+    public RaidArray(DiscStore[] discs, StripeLayout layout) {
+        this(discs, layout, DEFAULT_LOCKS);
+    }
+
+    public RaidArray(DiscStore[] discs, StripeLayout layout, int lockCount) {
+        if (discs.length != layout.getNumberOfDiscs()) {
+            throw new IllegalArgumentException("Layout of " + layout + " does not fit " + discs.length + " discs");
+        }
+        if (lockCount < 1) {
+            throw new IllegalArgumentException("At least one lock is needed, got " + lockCount);
+        }
+        this.discs = discs;
+        this.layout = layout;
+        this.optimisticReads = onHeap(discs);
+        this.locks = new StampedLock[lockCount];
+        for (int i = 0; i < lockCount; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * Creates an array of in-memory discs able to hold capacity bytes.
+     */
+    public static RaidArray create(StripeLayout layout, long capacity) {
+        return new RaidArray(Cluster.createDiscArray(layout, capacity), layout);
+    }
+
+    public StripeLayout getLayout() {
+        return layout;
+    }
+
+    public int getNumberOfDiscs() {
+        return discs.length;
+    }
+
+    public DiscStore getDisc(int discIndex) {
+        return discs[discIndex];
+    }
+
+    /**
+     * Bytes the array holds; while a reshape runs, still the capacity of the old layout.
+     */
+    public long capacity() {
+        lockAll();
+        try {
+            Reshape r = reshape;
+            return r != null ? r.oldCapacity : Cluster.capacity(discs, layout);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    public int failedDisc() {
+        lockAll();
+        try {
+            return Cluster.failedDisc(discs);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Starts keeping a CRC32C of every chunk, computed from the current contents. From then on
+     * reads verify the chunks they touch and reconstruct a corrupt chunk from the rest of its
+     * stripe.
+     */
+    public void enableChecksums() {
+        lockAll();
+        try {
+            checkNotReshaping();
+            ChunkChecksums table = new ChunkChecksums(layout);
+            table.compute(discs);
+            checksums = table;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the array's current contents. Nothing is copied now, so this takes
+     * constant time; writes copy each stripe they are first to overwrite into the snapshot.
+     */
+    public Snapshot snapshot() {
+        lockAll();
+        try {
+            checkNotReshaping();
+            Snapshot snapshot = new Snapshot(this, Cluster.capacity(discs, layout));
+            snapshots.add(snapshot);
+            return snapshot;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Number of snapshots not yet closed.
+     */
+    public int getSnapshotCount() {
+        return snapshots.size();
+    }
+
+    void releaseSnapshot(Snapshot snapshot) {
+        snapshots.remove(snapshot);
+    }
+
+    // A stripe not yet copied into the snapshot has not been written since it was taken, and the
+    // read lock keeps a writer from copying and overwriting it meanwhile
+    void readSnapshot(Snapshot snapshot, long offset, byte[] dst, int dstOffset, int length) {
+        long stripeSize = layout.getStripeSize();
+        foreground.incrementAndGet();
+        try {
+            int done = 0;
+            while (done < length) {
+                long stripe = (offset + done) / stripeSize;
+                int count = (int) Math.min(length - done, (stripe + 1) * stripeSize - (offset + done));
+                byte[] copy = snapshot.preserved(stripe);
+                if (copy == null) {
+                    StampedLock lock = lockFor(stripe);
+                    long stamp = lock.readLock();
+                    try {
+                        copy = snapshot.preserved(stripe);
+                        if (copy == null) {
+                            Cluster.read(discs, layout, offset + done, dst, dstOffset + done, count);
+                        }
+                    } finally {
+                        lock.unlockRead(stamp);
+                    }
+                }
+                if (copy != null) {
+                    System.arraycopy(copy, (int) (offset + done - stripe * stripeSize), dst, dstOffset + done, count);
+                }
+                done += count;
+            }
+        } finally {
+            foreground.decrementAndGet();
+        }
+    }
+
+    // Called with the stripe's write lock held, before it is overwritten; one copy is shared by
+    // all snapshots still seeing the old contents
+    private void preserveStripe(long stripe) {
+        byte[] contents = null;
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.needs(stripe)) {
+                if (contents == null) {
+                    contents = new byte[(int) layout.getStripeSize()];
+                    Cluster.read(discs, layout, stripe * contents.length, contents, 0, contents.length);
+                }
+                snapshot.preserve(stripe, contents);
+            }
+        }
+    }
+
+    /**
+     * Records every stripe write in the bitmap before the discs are touched, so that after a crash
+     * only the stripes written at the time need their parity recomputed, see
+     * WriteIntentBitmap.resync. Resync before calling this when the bitmap is not clean.
+     */
+    public void setWriteIntent(WriteIntentBitmap writeIntent) {
+        lockAll();
+        try {
+            checkNotReshaping();
+            this.writeIntent = writeIntent;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Forces the discs and clears the write-intent bits of stripes no longer being written.
+     */
+    public void syncWriteIntent() {
+        WriteIntentBitmap intent = writeIntent;
+        if (intent != null) {
+            intent.clean(() -> {
+                for (DiscStore disc : discs) {
+                    disc.force();
+                }
+            });
+        }
+    }
+
+    /**
+     * The chunk checksums, or null when they are not enabled.
+     */
+    public ChunkChecksums getChecksums() {
+        return checksums;
+    }
+
+    StampedLock lockFor(long stripe) {
+        return locks[(int) (stripe % locks.length)];
+    }
+
+    DiscStore[] discs() {
+        return discs;
+    }
+
+    /**
+     * Whether any read or write is in progress.
+     */
+    public boolean isBusy() {
+        return foreground.get() > 0;
+    }
+
+    public byte[] read(long offset, int length) {
+        byte[] range = new byte[length];
+        read(offset, range, 0, length);
+        return range;
+    }
+
+    /**
+     * Reads length bytes at offset, one stripe at a time.
+     */
+    public void read(long offset, byte[] dst, int dstOffset, int length) {
+        foreground.incrementAndGet();
+        try {
+            int done = 0;
+            while (done < length) {
+                Reshape r = reshape;
+                StripeLayout current = layout;
+                long position = offset + done;
+                long stripeSize = layoutAt(r, current, position).getStripeSize();
+                long stripe = position / stripeSize;
+                int count = (int) Math.min(length - done, (stripe + 1) * stripeSize - position);
+                boolean read = checksums != null
+                        ? readVerified(r, current, stripe, position, dst, dstOffset + done, count)
+                        : readStripe(r, current, lockFor(stripe), position, dst, dstOffset + done, count);
+                if (read) {
+                    done += count;
+                }
+            }
+        } finally {
+            foreground.decrementAndGet();
+        }
+    }
+
+    // Returns false, having read nothing, when a reshape moved on before the lock was taken.
+    // Only heap discs are read optimistically: a writer may truncate a disc under the read, which
+    // for a MappedDisc is a fault on the mapping rather than an exception we could retry.
+    private boolean readStripe(Reshape r, StripeLayout current, StampedLock lock,
+                               long offset, byte[] dst, int dstOffset, int length) {
+        long stamp = optimisticReads ? lock.tryOptimisticRead() : 0;
+        if (stamp != 0 && unchanged(r, current)) {
+            ArrayEvent event = ArrayEvent.start(Metrics.Operation.READ);
+            try {
+                long reconstructed = Cluster.readRange(discsAt(r, offset), layoutAt(r, current, offset),
+                        offset, dst, dstOffset, length);
+                if (lock.validate(stamp)) {
+                    event.finish(length, 1, reconstructed);
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                // A writer resized a disc under the optimistic read; only a validated read may
+                // fail for real
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            if (!unchanged(r, current)) {
+                return false;
+            }
+            Cluster.read(discsAt(r, offset), layoutAt(r, current, offset), offset, dst, dstOffset, length);
+            return true;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Verification reads whole chunks, so it always runs under the read lock; a corrupt chunk is
+    // repaired under the write lock before the range is read. Checksums are dropped while a
+    // reshape runs, so this only reads the current layout.
+    private boolean readVerified(Reshape r, StripeLayout current, long stripe,
+                                 long offset, byte[] dst, int dstOffset, int length) {
+        StampedLock lock = lockFor(stripe);
+        long stamp = lock.readLock();
+        try {
+            if (!unchanged(r, current) || checksums == null) {
+                return false;
+            }
+            int corrupt = corruptChunk(stripe, offset, length);
+            if (corrupt >= 0) {
+                long writeStamp = lock.tryConvertToWriteLock(stamp);
+                if (writeStamp == 0) {
+                    lock.unlockRead(stamp);
+                    stamp = lock.writeLock();
+                    if (!unchanged(r, current) || checksums == null) {
+                        return false;
+                    }
+                    corrupt = corruptChunk(stripe, offset, length);
+                } else {
+                    stamp = writeStamp;
+                }
+                if (corrupt >= 0) {
+                    checksums.repair(discs, stripe, corrupt);
+                }
+            }
+            Cluster.read(discs, layout, offset, dst, dstOffset, length);
+            return true;
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    // First data chunk in the range whose checksum does not match, or -1
+    private int corruptChunk(long stripe, long offset, int length) {
+        int chunkSize = layout.getChunkSize();
+        int parity = layout.parityDisc(stripe);
+        long stripeStart = stripe * layout.getStripeSize();
+        for (int position = (int) ((offset - stripeStart) / chunkSize);
+             position <= (offset + length - 1 - stripeStart) / chunkSize; position++) {
+            int disc = StripeLayout.dataDisc(parity, position);
+            if (!discs[disc].isFailed() && !checksums.verify(discs, stripe, disc)) {
+                return disc;
+            }
+        }
+        return -1;
+    }
+
+    public void write(long offset, byte[] data) {
+        write(offset, data, 0, data.length);
+    }
+
+    /**
+     * Writes length bytes at offset, updating data and parity of one stripe at a time under that
+     * stripe's write lock.
+     */
+    public void write(long offset, byte[] data, int dataOffset, int length) {
+        foreground.incrementAndGet();
+        try {
+            int done = 0;
+            while (done < length) {
+                Reshape r = reshape;
+                StripeLayout current = layout;
+                long position = offset + done;
+                StripeLayout target = layoutAt(r, current, position);
+                long stripe = position / target.getStripeSize();
+                int count = (int) Math.min(length - done, (stripe + 1) * target.getStripeSize() - position);
+                StampedLock lock = lockFor(stripe);
+                long stamp = lock.writeLock();
+                WriteIntentBitmap intent = writeIntent;
+                try {
+                    if (!unchanged(r, current)) {
+                        // A reshape moved on meanwhile, look the stripe up again
+                        continue;
+                    }
+                    if (!snapshots.isEmpty()) {
+                        preserveStripe(stripe);
+                    }
+                    if (intent != null) {
+                        intent.startWrite(stripe);
+                    }
+                    Cluster.write(discsAt(r, position), target, position, data, dataOffset + done, count);
+                    if (checksums != null) {
+                        updateChecksums(stripe, position, count);
+                    }
+                    // Left in flight when the write failed, so the region is resynced
+                    if (intent != null) {
+                        intent.endWrite(stripe);
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+                done += count;
+            }
+        } finally {
+            foreground.decrementAndGet();
+        }
+    }
+
+    // A write changes the touched data chunks and the parity chunk, and while a disc has failed
+    // also rewrites that disc's chunk
+    private void updateChecksums(long stripe, long offset, int length) {
+        int chunkSize = layout.getChunkSize();
+        int parity = layout.parityDisc(stripe);
+        long stripeStart = stripe * layout.getStripeSize();
+        for (int position = (int) ((offset - stripeStart) / chunkSize);
+             position <= (offset + length - 1 - stripeStart) / chunkSize; position++) {
+            checksums.update(discs, stripe, StripeLayout.dataDisc(parity, position));
+        }
+        checksums.update(discs, stripe, parity);
+        int failedIndex = Cluster.failedDisc(discs);
+        if (failedIndex >= 0) {
+            checksums.update(discs, stripe, failedIndex);
+        }
+    }
+
+    /**
+     * Replaces the contents of the array with data, resizing the discs to fit. Live snapshots get
+     * a copy of every stripe they still share with the array.
+     */
+    public void save(byte[] data) {
+        lockAll();
+        try {
+            checkNotReshaping();
+            long snapshotStripes = 0;
+            for (Snapshot snapshot : snapshots) {
+                snapshotStripes = Math.max(snapshotStripes, snapshot.stripes());
+            }
+            for (long stripe = 0; stripe < snapshotStripes; stripe++) {
+                preserveStripe(stripe);
+            }
+            WriteIntentBitmap intent = writeIntent;
+            long stripes = layout.stripeCount(data.length);
+            if (intent != null) {
+                intent.startWrite(0, stripes);
+            }
+            Cluster.saveData(data, discs, layout);
+            if (intent != null) {
+                intent.endWrite(0, stripes);
+            }
+            if (checksums != null) {
+                checksums.compute(discs);
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Recalculates the parity of every stripe.
+     */
+    public void sumControl() {
+        lockAll();
+        try {
+            checkNotReshaping();
+            Cluster.sumControl(discs, layout);
+            if (checksums != null) {
+                checksums.compute(discs);
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Simulates the failure of a disc, see Cluster.simulateDamage, and tells the failure listeners.
+     */
+    public void fail(int discIndex, boolean truncate) {
+        lockAll();
+        try {
+            Cluster.simulateDamage(new Disc(discIndex), discs, truncate);
+        } finally {
+            unlockAll();
+        }
+        for (IntConsumer listener : failureListeners) {
+            listener.accept(discIndex);
+        }
+    }
+
+    /**
+     * Registers a listener called with the index of every disc that fails, on the thread that
+     * marked it failed and without any lock held.
+     */
+    public void addFailureListener(IntConsumer listener) {
+        failureListeners.add(listener);
+    }
+
+    public void removeFailureListener(IntConsumer listener) {
+        failureListeners.remove(listener);
+    }
+
+    /**
+     * Puts a new disc in place of a failed one and returns the old disc. The new disc counts as
+     * failed until rebuild has filled it in.
+     */
+    public DiscStore replaceDisc(int discIndex, DiscStore replacement) {
+        lockAll();
+        try {
+            DiscStore old = discs[discIndex];
+            if (!old.isFailed()) {
+                throw new IllegalStateException("Disc " + discIndex + " has not failed");
+            }
+            replacement.setSize(old.size());
+            replacement.setFailed(true);
+            discs[discIndex] = replacement;
+            Reshape r = reshape;
+            if (r != null && discIndex < r.oldDiscs.length) {
+                r.oldDiscs[discIndex] = replacement;
+            }
+            optimisticReads = onHeap(discs);
+            return old;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Rebuilds a failed disc stripe by stripe while the array stays in use. Until the last stripe
+     * is done the disc counts as failed, so reads keep reconstructing its chunks. A reshape in
+     * progress waits for the rebuild; stripes it has not reached are rebuilt in the old layout.
+     */
+    public void rebuild(int discIndex) {
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.REBUILD).disc(discIndex);
+        long stripes;
+        lockAll();
+        try {
+            discs[discIndex].setSize(discs[discIndex == 0 ? 1 : 0].size());
+            stripes = discs[discIndex].size() / 8 / layout.getChunkSize();
+        } finally {
+            unlockAll();
+        }
+
+        long stripe = 0;
+        while (stripe < stripes) {
+            Reshape r = reshape;
+            StripeLayout current = layout;
+            StampedLock lock = lockFor(stripe);
+            long writeStamp = lock.writeLock();
+            try {
+                if (!unchanged(r, current)) {
+                    continue;
+                }
+                if (r == null || stripe < r.checkpoint) {
+                    Cluster.recoverStripes(discs, discIndex, layout, stripe, stripe + 1);
+                    if (checksums != null) {
+                        checksums.update(discs, stripe, discIndex);
+                    }
+                } else if (discIndex < r.oldDiscs.length) {
+                    // The added disc holds nothing past the checkpoint yet
+                    Cluster.recoverStripes(r.oldDiscs, discIndex, r.oldLayout, stripe, stripe + 1);
+                }
+                stripe++;
+            } finally {
+                lock.unlockWrite(writeStamp);
+            }
+        }
+
+        lockAll();
+        try {
+            discs[discIndex].setFailed(false);
+        } finally {
+            unlockAll();
+        }
+        event.finish(stripes * layout.getChunkSize(), stripes, 0);
+    }
+
+    /**
+     * Starts growing the array onto one more disc, added, which becomes the last member. Data is
+     * moved to the new layout stripe by stripe from the start of the array by continueReshape;
+     * until it is done the capacity stays that of the old layout, and reads and writes go to
+     * the new layout below the checkpoint and to the old one above it. This call already moves
+     * the first stripes, the ones that overwrite data not yet moved, after copying them to the
+     * journal.
+     *
+     * <p>With a journal, the checkpoint is persisted after every batch of stripes, so a reshape
+     * interrupted by a crash can be picked up with resumeReshape; without one it cannot. Snapshots
+     * and the write-intent bitmap cannot be used while reshaping, and checksums are dropped and
+     * computed again at the end.
+     */
+    public void startReshape(DiscStore added, ReshapeJournal journal) {
+        lockAll();
+        try {
+            checkNotReshaping();
+            if (!snapshots.isEmpty()) {
+                throw new IllegalStateException("Close the snapshots of the array before reshaping it");
+            }
+            if (writeIntent != null) {
+                throw new IllegalStateException("Detach the write-intent bitmap before reshaping");
+            }
+            int failedIndex = Cluster.failedDisc(discs);
+            if (failedIndex >= 0) {
+                throw new IllegalStateException("Disc " + failedIndex + " has failed, rebuild it before reshaping");
+            }
+            StripeLayout oldLayout = layout;
+            StripeLayout newLayout = new StripeLayout(discs.length + 1, oldLayout.getChunkSize());
+            DiscStore[] newDiscs = Arrays.copyOf(discs, discs.length + 1);
+            added.setSize(discs[0].size());
+            added.setFailed(false);
+            newDiscs[discs.length] = added;
+
+            Reshape r = new Reshape(discs, oldLayout, newLayout, discs[0].size() / 8 / oldLayout.getChunkSize(),
+                    journal, checksums != null, 0);
+            byte[] backup = new byte[(int) (r.criticalStripes() * newLayout.getStripeSize())];
+            readOld(r, 0, backup);
+            if (journal != null) {
+                journal.begin(oldLayout, backup);
+            }
+            discs = newDiscs;
+            layout = newLayout;
+            optimisticReads = onHeap(newDiscs);
+            checksums = null;
+            moveCritical(r, backup);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Takes an array whose reshape was interrupted back into use: discs are all its members,
+     * including the added disc, and the journal the reshape was started with. The stripes the
+     * journal holds a backup of are written again if the reshape had not got past them. Call
+     * continueReshape to finish the reshape.
+     */
+    public static RaidArray resumeReshape(DiscStore[] discs, ReshapeJournal journal) {
+        if (!journal.isActive()) {
+            throw new IllegalStateException("The journal does not record a reshape");
+        }
+        StripeLayout oldLayout = journal.getOldLayout();
+        if (discs.length != oldLayout.getNumberOfDiscs() + 1) {
+            throw new IllegalArgumentException("A reshape of " + oldLayout + " needs "
+                    + (oldLayout.getNumberOfDiscs() + 1) + " discs, got " + discs.length);
+        }
+        StripeLayout newLayout = new StripeLayout(discs.length, oldLayout.getChunkSize());
+        RaidArray array = new RaidArray(discs, newLayout);
+        Reshape r = new Reshape(Arrays.copyOf(discs, discs.length - 1), oldLayout, newLayout,
+                discs[0].size() / 8 / oldLayout.getChunkSize(), journal, false, journal.getCheckpoint());
+        array.lockAll();
+        try {
+            if (r.checkpoint < r.criticalStripes()) {
+                array.moveCritical(r, journal.getBackup());
+            } else {
+                array.reshape = r;
+            }
+        } finally {
+            array.unlockAll();
+        }
+        return array;
+    }
+
+    public boolean isReshaping() {
+        return reshape != null;
+    }
+
+    public void continueReshape() {
+        continueReshape(ProgressListener.NONE);
+    }
+
+    /**
+     * Moves the rest of the data to the new layout on the calling thread, at most
+     * RESHAPE_BATCH_BYTES at a time, and reports progress in stripes after every batch. A batch
+     * only locks the stripes it writes and the stripes of the old layout it reads, so reads and
+     * writes elsewhere in the array go on; only the end of the reshape, which computes the
+     * checksums again, takes the whole array. Stopped by a failed disc or by the listener
+     * throwing, the reshape can be continued later.
+     */
+    public void continueReshape(ProgressListener progress) {
+        Reshape r = reshape;
+        if (r == null) {
+            return;
+        }
+        ArrayEvent event = ArrayEvent.start(Metrics.Operation.RESHAPE);
+        long rows = r.rows;
+        long from = r.checkpoint;
+        long done = from;
+        try {
+            while ((r = reshapeStep(RESHAPE_BATCH_BYTES)) != null) {
+                done = r.checkpoint;
+                progress.progress(done, rows);
+            }
+            done = rows;
+            progress.progress(rows, rows);
+        } finally {
+            event.finish((done - from) * layout.getStripeSize(), done - from, 0);
+        }
+    }
+
+    // Moves up to maxBytes of data and returns the reshape's state, or null once it is done. New
+    // stripe s goes where old stripe s was, so the batch may only reach as far as the data already
+    // moved: to * (n - 1) <= checkpoint * n for n discs in the old layout. The rows written and the
+    // old rows read are therefore disjoint, and moving the checkpoint to the end of the batch only
+    // changes the layout of data in those rows, so their locks are all the batch needs.
+    private Reshape reshapeStep(long maxBytes) {
+        Reshape r = reshape;
+        if (r == null) {
+            return null;
+        }
+        int oldCount = r.oldLayout.getNumberOfDiscs();
+        long stripeSize = r.newLayout.getStripeSize();
+        long to = Math.min(r.rows, Math.min(r.checkpoint + Math.max(1, maxBytes / stripeSize),
+                r.checkpoint * oldCount / (oldCount - 1)));
+        boolean[] held = new boolean[locks.length];
+        markRows(held, r.checkpoint, to);
+        long oldStripeSize = r.oldLayout.getStripeSize();
+        markRows(held, r.checkpoint * stripeSize / oldStripeSize,
+                Math.min(r.rows, (to * stripeSize + oldStripeSize - 1) / oldStripeSize));
+        lockRows(held);
+        try {
+            if (reshape != r) {
+                // Another thread moved the reshape on
+                return reshape;
+            }
+            int failedIndex = Cluster.failedDisc(discs);
+            if (failedIndex >= 0) {
+                throw new IllegalStateException("Disc " + failedIndex + " has failed, rebuild it to go on reshaping");
+            }
+            byte[] stripeData = new byte[(int) stripeSize];
+            long[] parity = new long[r.newLayout.getChunkWords()];
+            for (long stripe = r.checkpoint; stripe < to; stripe++) {
+                readOld(r, stripe * stripeSize, stripeData);
+                Cluster.writeStripe(discs, r.newLayout, stripe, r.newLayout.parityDisc(stripe), stripeData, 0, parity);
+            }
+            // The old rows stay locked until the checkpoint is durable and published, so no write
+            // can still reach the old copy of the data moved
+            moveCheckpoint(r, to);
+        } finally {
+            unlockRows(held);
+        }
+        if (to < r.rows) {
+            return reshape;
+        }
+        lockAll();
+        try {
+            Reshape last = reshape;
+            if (last != null && last.checkpoint == last.rows) {
+                finish(last);
+            }
+        } finally {
+            unlockAll();
+        }
+        return reshape;
+    }
+
+    private void markRows(boolean[] held, long from, long to) {
+        // Past locks.length rows every lock is taken anyway
+        for (long row = from; row < Math.min(to, from + locks.length); row++) {
+            held[(int) (row % locks.length)] = true;
+        }
+    }
+
+    // In index order like lockAll, so a batch cannot deadlock with it
+    private void lockRows(boolean[] held) {
+        for (int i = 0; i < locks.length; i++) {
+            if (held[i]) {
+                locks[i].asWriteLock().lock();
+            }
+        }
+    }
+
+    private void unlockRows(boolean[] held) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            if (held[i]) {
+                locks[i].asWriteLock().unlock();
+            }
+        }
+    }
+
+    // Writes the stripes of the new layout that would overwrite data not yet moved from a backup
+    // of their data; called under lockAll with discs and layout already the new ones
+    private void moveCritical(Reshape r, byte[] backup) {
+        long[] parity = new long[layout.getChunkWords()];
+        for (long stripe = 0; stripe < r.criticalStripes(); stripe++) {
+            Cluster.writeStripe(discs, layout, stripe, layout.parityDisc(stripe),
+                    backup, (int) (stripe * layout.getStripeSize()), parity);
+        }
+        advance(r, r.criticalStripes());
+    }
+
+    // Moves the checkpoint and, once every row is in the new layout, finishes the reshape; called
+    // under lockAll
+    private void advance(Reshape r, long checkpoint) {
+        moveCheckpoint(r, checkpoint);
+        if (checkpoint == r.rows) {
+            finish(reshape);
+        }
+    }
+
+    // Makes the stripes up to the new checkpoint durable, then records and publishes it
+    private void moveCheckpoint(Reshape r, long checkpoint) {
+        for (DiscStore disc : discs) {
+            disc.force();
+        }
+        if (r.journal != null) {
+            r.journal.advance(checkpoint);
+        }
+        reshape = r.to(checkpoint);
+    }
+
+    // Called under lockAll once the checkpoint has reached the last row
+    private void finish(Reshape r) {
+        reshape = null;
+        if (r.checksums) {
+            ChunkChecksums table = new ChunkChecksums(layout);
+            table.compute(discs);
+            checksums = table;
+        }
+        if (r.journal != null) {
+            r.journal.finish();
+        }
+    }
+
+    // Reads data as laid out before the reshape, past its capacity as zeros
+    private static void readOld(Reshape r, long offset, byte[] dst) {
+        int length = (int) Math.max(0, Math.min(dst.length, r.oldCapacity - offset));
+        if (length > 0) {
+            Cluster.read(r.oldDiscs, r.oldLayout, offset, dst, 0, length);
+        }
+        Arrays.fill(dst, length, dst.length, (byte) 0);
+    }
+
+    private void checkNotReshaping() {
+        if (reshape != null) {
+            throw new IllegalStateException("The array is being reshaped");
+        }
+    }
+
+    private static boolean onHeap(DiscStore[] discs) {
+        for (DiscStore disc : discs) {
+            if (disc instanceof MappedDisc) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether the layout read before taking a stripe lock still holds. It only changes under
+    // lockAll or, for the stripes a reshape batch moves, under their locks, so once checked the
+    // stripe lock keeps it
+    private boolean unchanged(Reshape r, StripeLayout current) {
+        return reshape == r && layout == current;
+    }
+
+    private static StripeLayout layoutAt(Reshape r, StripeLayout current, long position) {
+        return r == null || position < r.limit ? current : r.oldLayout;
+    }
+
+    private DiscStore[] discsAt(Reshape r, long position) {
+        return r == null || position < r.limit ? discs : r.oldDiscs;
+    }
+
+    // Locks are always taken in index order and per-stripe operations hold one lock at a time, so
+    // this cannot deadlock with them or with a reshape batch
+    private void lockAll() {
+        for (StampedLock lock : locks) {
+            lock.asWriteLock().lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].asWriteLock().unlock();
+        }
+    }
+
+    // The old layout of a reshape in progress. Moving the checkpoint replaces it, so a stripe
+    // operation can tell whether the reshape moved on while it waited for its lock. Stripe s of
+    // either layout is row s of every disc, so both use lockFor(s).
+    private static final class Reshape {
+        final DiscStore[] oldDiscs;
+        final StripeLayout oldLayout;
+        final StripeLayout newLayout;
+        final long rows;
+        final long oldCapacity;
+        final ReshapeJournal journal;
+        // Whether checksums were on before the reshape
+        final boolean checksums;
+        // Stripes of the new layout written, and the bytes they hold
+        final long checkpoint;
+        final long limit;
+
+        Reshape(DiscStore[] oldDiscs, StripeLayout oldLayout, StripeLayout newLayout, long rows,
+                ReshapeJournal journal, boolean checksums, long checkpoint) {
+            this.oldDiscs = oldDiscs;
+            this.oldLayout = oldLayout;
+            this.newLayout = newLayout;
+            this.rows = rows;
+            this.oldCapacity = rows * oldLayout.getStripeSize();
+            this.journal = journal;
+            this.checksums = checksums;
+            this.checkpoint = checkpoint;
+            this.limit = checkpoint * newLayout.getStripeSize();
+        }
+
+        Reshape to(long checkpoint) {
+            return new Reshape(oldDiscs, oldLayout, newLayout, rows, journal, checksums, checkpoint);
+        }
+
+        // New stripe s holds data of old stripe s itself for s < n - 1, n discs in the old layout
+        long criticalStripes() {
+            return Math.min(rows, oldLayout.getNumberOfDiscs() - 1);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pk.wieik.raidjavafx;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a range of independent stripes (or words) in halves until the pieces are small enough,
+ * then runs them on the fork/join pool.
+ */
+class RangeTask extends RecursiveAction {
+
+    interface Action {
+        void run(long from, long to);
+    }
+
+    private final long from;
+    private final long to;
+    private final long grain;
+    private final Action action;
+
+    private RangeTask(long from, long to, long grain, Action action) {
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+        this.action = action;
+    }
+
+    /**
+     * Runs action over [from, to) on the pool, in pieces of at least minGrain and roughly four
+     * pieces per worker so uneven pieces still balance out.
+     */
+    static void run(ForkJoinPool pool, long from, long to, long minGrain, Action action) {
+        long grain = Math.max(minGrain, (to - from) / (pool.getParallelism() * 4L));
+        pool.invoke(new RangeTask(from, to, Math.max(1, grain), action));
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= grain) {
+            action.run(from, to);
+            return;
+        }
+        long middle = from + (to - from) / 2;
+        invokeAll(new RangeTask(from, middle, grain, action), new RangeTask(middle, to, grain, action));
+    }
+}
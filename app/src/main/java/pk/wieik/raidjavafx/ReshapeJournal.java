@@ -0,0 +1,167 @@
+package pk.wieik.raidjavafx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persisted progress of a reshape, see RaidArray.startReshape, so that one interrupted by a crash
+ * can be resumed with RaidArray.resumeReshape instead of leaving the data half in one layout and
+ * half in the other. Holds the old layout, the checkpoint (stripes of the new layout written so
+ * far) and a backup of the first stripes: those are the only ones the new layout writes over
+ * data that has not been moved yet.
+ *
+ * <p>File layout: magic, version, old number of discs, chunk size, checkpoint, backup length, then
+ * the backup. An empty file means no reshape is in progress.
+ */
+public class ReshapeJournal implements Closeable {
+    public static final String FILE_NAME = "reshape.journal";
+
+    private static final int MAGIC = 0x5252534a; // RRSJ
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int CHECKPOINT_OFFSET = 16;
+
+    private final FileChannel channel;
+    private StripeLayout oldLayout;
+    private long checkpoint;
+    private byte[] backup;
+
+    private ReshapeJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    public static Path file(Path directory) {
+        return directory.resolve(FILE_NAME);
+    }
+
+    /**
+     * Opens the journal file, creating an empty one if it does not exist.
+     */
+    public static ReshapeJournal open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ReshapeJournal journal = new ReshapeJournal(channel);
+            if (channel.size() == 0) {
+                return journal;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+                // read the whole file
+            }
+            buffer.flip();
+            if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a reshape journal: " + file);
+            }
+            int numberOfDiscs = buffer.getInt();
+            int chunkSize = buffer.getInt();
+            journal.checkpoint = buffer.getLong();
+            int backupLength = buffer.getInt();
+            buffer.getInt();
+            if (buffer.remaining() != backupLength) {
+                throw new IOException("Reshape journal " + file + " is truncated");
+            }
+            journal.oldLayout = new StripeLayout(numberOfDiscs, chunkSize);
+            journal.backup = new byte[backupLength];
+            buffer.get(journal.backup);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Whether a reshape was started and has not finished.
+     */
+    public synchronized boolean isActive() {
+        return oldLayout != null;
+    }
+
+    /**
+     * Layout of the array before the reshape.
+     */
+    public synchronized StripeLayout getOldLayout() {
+        return oldLayout;
+    }
+
+    /**
+     * Stripes of the new layout known to be written.
+     */
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    synchronized byte[] getBackup() {
+        return backup;
+    }
+
+    /**
+     * Records, durably, that a reshape from oldLayout starts, with the data of its first stripes.
+     */
+    synchronized void begin(StripeLayout oldLayout, byte[] backup) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + backup.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putInt(oldLayout.getNumberOfDiscs()).putInt(oldLayout.getChunkSize())
+                .putLong(0).putInt(backup.length).putInt(0)
+                .put(backup).flip();
+        try {
+            channel.truncate(0);
+            write(buffer, 0);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write reshape journal", e);
+        }
+        this.oldLayout = oldLayout;
+        this.backup = backup;
+        this.checkpoint = 0;
+    }
+
+    /**
+     * Records, durably, that the first stripes of the new layout are written. The caller must
+     * have forced them to the discs.
+     */
+    synchronized void advance(long stripes) {
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(stripes).flip();
+        try {
+            write(buffer, CHECKPOINT_OFFSET);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write reshape journal", e);
+        }
+        checkpoint = stripes;
+    }
+
+    /**
+     * Records that the reshape is complete.
+     */
+    synchronized void finish() {
+        try {
+            channel.truncate(0);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write reshape journal", e);
+        }
+        oldLayout = null;
+        backup = null;
+        checkpoint = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
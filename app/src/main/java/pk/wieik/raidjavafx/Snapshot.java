@@ -0,0 +1,95 @@
+package pk.wieik.raidjavafx;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only, point-in-time view of a RaidArray, see RaidArray.snapshot. A new snapshot copies
+ * nothing: every stripe is read from the live discs until the array first overwrites it, at which
+ * point the array hands the snapshot the stripe's old contents. Memory therefore grows with the
+ * number of stripes changed since the snapshot was taken, one stripe of data each; snapshots that
+ * need the same stripe share one copy.
+ *
+ * <p>Close a snapshot that is no longer needed, otherwise the array keeps copying stripes for it.
+ */
+public class Snapshot implements AutoCloseable {
+
+    private final RaidArray array;
+    private final long capacity;
+    private final long stripes;
+    private final Map<Long, byte[]> preserved = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    Snapshot(RaidArray array, long capacity) {
+        this.array = array;
+        this.capacity = capacity;
+        this.stripes = array.getLayout().stripeCount(capacity);
+    }
+
+    /**
+     * Capacity of the array when the snapshot was taken.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Stripes copied so far because the array overwrote them.
+     */
+    public int getPreservedStripes() {
+        return preserved.size();
+    }
+
+    public long getPreservedBytes() {
+        return preserved.size() * array.getLayout().getStripeSize();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public byte[] read(long offset, int length) {
+        byte[] range = new byte[length];
+        read(offset, range, 0, length);
+        return range;
+    }
+
+    /**
+     * Reads length bytes at offset as they were when the snapshot was taken.
+     */
+    public void read(long offset, byte[] dst, int dstOffset, int length) {
+        if (closed) {
+            throw new IllegalStateException("Snapshot is closed");
+        }
+        Cluster.checkRange("Snapshot read", offset, length, capacity);
+        array.readSnapshot(this, offset, dst, dstOffset, length);
+    }
+
+    /**
+     * Stops the array copying stripes for this snapshot and frees the copies.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        array.releaseSnapshot(this);
+        preserved.clear();
+    }
+
+    // Called under the stripe's write lock, before the array overwrites it
+    boolean needs(long stripe) {
+        return !closed && stripe < stripes && !preserved.containsKey(stripe);
+    }
+
+    void preserve(long stripe, byte[] contents) {
+        preserved.put(stripe, contents);
+    }
+
+    // Once set, a stripe's copy never changes, so it may be read without the stripe lock
+    byte[] preserved(long stripe) {
+        return preserved.get(stripe);
+    }
+
+    long stripes() {
+        return stripes;
+    }
+}
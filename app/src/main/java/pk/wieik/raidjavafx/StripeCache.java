@@ -0,0 +1,252 @@
+package pk.wieik.raidjavafx;
+
+import java.io.Flushable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Write-back cache of whole stripes in front of a striped array. Writes land in memory and are
+ * merged per stripe, so a run of small adjacent writes reaches the disks as one write whose parity
+ * is computed once, without reading anything back when the stripe is complete in memory. Reads of
+ * cached stripes never touch the disks. The least recently used stripe is written out and dropped
+ * when the cache is full.
+ *
+ * <p>The cache assumes it is the only writer of the disks while it holds dirty stripes, and it is
+ * not thread-safe.
+ */
+public class StripeCache implements Flushable {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final DiscStore[] discs;
+    private final StripeLayout layout;
+    private final int capacity;
+    private final int stripeSize;
+    private final LinkedHashMap<Long, Entry> entries;
+    // Buffer of the last evicted stripe, reused for the next one
+    private byte[] spare;
+
+    private long hits;
+    private long misses;
+    private long fullStripeWrites;
+    private long partialWrites;
+
+    private static final class Entry {
+        final long stripe;
+        final byte[] data;
+        // Whole stripe is in data, not just the dirty range
+        boolean loaded;
+        int dirtyFrom;
+        int dirtyTo;
+
+        Entry(long stripe, byte[] data) {
+            this.stripe = stripe;
+            this.data = data;
+        }
+
+        boolean isDirty() {
+            return dirtyFrom < dirtyTo;
+        }
+    }
+
+    public StripeCache(DiscStore[] discs, StripeLayout layout) {
+        this(discs, layout, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache holding up to capacity stripes of stripe size bytes each.
+     */
+    public StripeCache(DiscStore[] discs, StripeLayout layout, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1 stripe, got " + capacity);
+        }
+        if (layout.getStripeSize() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Stripes of " + layout + " are too large to cache");
+        }
+        this.discs = discs;
+        this.layout = layout;
+        this.capacity = capacity;
+        this.stripeSize = (int) layout.getStripeSize();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= StripeCache.this.capacity) {
+                    return false;
+                }
+                writeBack(eldest.getValue());
+                spare = eldest.getValue().data;
+                return true;
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stripes of reads served from memory.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Stripes that had to be read from the disks.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Stripes written out in full, with parity computed from memory.
+     */
+    public long getFullStripeWrites() {
+        return fullStripeWrites;
+    }
+
+    /**
+     * Stripes written out with a read-modify-write of their dirty range.
+     */
+    public long getPartialWrites() {
+        return partialWrites;
+    }
+
+    public void write(long offset, byte[] data) {
+        write(offset, data, 0, data.length);
+    }
+
+    /**
+     * Stores length bytes at offset of the array in the cache. Nothing reaches the disks until the
+     * stripe is evicted or flushed.
+     */
+    public void write(long offset, byte[] data, int dataOffset, int length) {
+        Cluster.checkRange("Write", offset, length, Cluster.capacity(discs, layout));
+        int done = 0;
+        while (done < length) {
+            long stripe = (offset + done) / stripeSize;
+            int from = (int) (offset + done - stripe * stripeSize);
+            int to = (int) Math.min(stripeSize, from + (long) (length - done));
+            Entry entry = entries.get(stripe);
+            if (entry == null) {
+                entry = put(stripe);
+            } else if (!entry.loaded && entry.isDirty() && (to < entry.dirtyFrom || from > entry.dirtyTo)) {
+                // Only one dirty range is tracked, so fill the gap from the disks
+                load(entry);
+            }
+
+            System.arraycopy(data, dataOffset + done, entry.data, from, to - from);
+            entry.dirtyFrom = entry.isDirty() ? Math.min(entry.dirtyFrom, from) : from;
+            entry.dirtyTo = Math.max(entry.dirtyTo, to);
+            if (entry.dirtyFrom == 0 && entry.dirtyTo == stripeSize) {
+                entry.loaded = true;
+            }
+            done += to - from;
+        }
+    }
+
+    public byte[] read(long offset, int length) {
+        byte[] range = new byte[length];
+        read(offset, range, 0, length);
+        return range;
+    }
+
+    /**
+     * Reads length bytes at offset of the array, including data not written out yet. Stripes not
+     * in the cache are read from the disks whole and kept.
+     */
+    public void read(long offset, byte[] dst, int dstOffset, int length) {
+        Cluster.checkRange("Read", offset, length, Cluster.capacity(discs, layout));
+        int done = 0;
+        while (done < length) {
+            long stripe = (offset + done) / stripeSize;
+            int from = (int) (offset + done - stripe * stripeSize);
+            int to = (int) Math.min(stripeSize, from + (long) (length - done));
+            Entry entry = entries.get(stripe);
+            if (entry != null && (entry.loaded || (from >= entry.dirtyFrom && to <= entry.dirtyTo))) {
+                hits++;
+            } else {
+                misses++;
+                if (entry == null) {
+                    entry = put(stripe);
+                }
+                load(entry);
+            }
+            System.arraycopy(entry.data, from, dst, dstOffset + done, to - from);
+            done += to - from;
+        }
+    }
+
+    /**
+     * Writes out every dirty stripe; the stripes stay cached.
+     */
+    @Override
+    public void flush() {
+        for (Entry entry : entries.values()) {
+            writeBack(entry);
+        }
+    }
+
+    /**
+     * Writes out and drops every stripe.
+     */
+    public void clear() {
+        flush();
+        entries.clear();
+    }
+
+    /**
+     * Drops the given stripes without writing them out, e.g. after the disks were changed
+     * directly. Pending writes to them are lost.
+     */
+    public void invalidate(long fromStripe, long toStripe) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.stripe >= fromStripe && entry.stripe < toStripe) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private Entry put(long stripe) {
+        byte[] data = spare != null ? spare : new byte[stripeSize];
+        spare = null;
+        Entry entry = new Entry(stripe, data);
+        entries.put(stripe, entry);
+        return entry;
+    }
+
+    // Reads the parts of the stripe that are not dirty, keeping the cached writes
+    private void load(Entry entry) {
+        long start = entry.stripe * stripeSize;
+        if (entry.isDirty()) {
+            Cluster.read(discs, layout, start, entry.data, 0, entry.dirtyFrom);
+            Cluster.read(discs, layout, start + entry.dirtyTo, entry.data, entry.dirtyTo, stripeSize - entry.dirtyTo);
+        } else {
+            Cluster.read(discs, layout, start, entry.data, 0, stripeSize);
+        }
+        entry.loaded = true;
+    }
+
+    private void writeBack(Entry entry) {
+        if (!entry.isDirty()) {
+            return;
+        }
+        long start = entry.stripe * stripeSize;
+        if (entry.loaded) {
+            // Parity comes from the stripe in memory, nothing is read back
+            Cluster.write(discs, layout, start, entry.data, 0, stripeSize);
+            fullStripeWrites++;
+        } else {
+            Cluster.write(discs, layout, start + entry.dirtyFrom, entry.data, entry.dirtyFrom, entry.dirtyTo - entry.dirtyFrom);
+            partialWrites++;
+        }
+        entry.dirtyFrom = 0;
+        entry.dirtyTo = 0;
+    }
+}
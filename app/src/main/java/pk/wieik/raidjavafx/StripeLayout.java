@@ -0,0 +1,143 @@
+package pk.wieik.raidjavafx;
+
+/**
+ * Describes how data is striped across the disks: every disk gets one contiguous chunk of
+ * chunkSize bytes per stripe, and the parity chunk moves to another disk on every stripe using the
+ * same rotation as the bit layout (see Cluster.adjustSkipIndex). Logical byte offsets map to a
+ * disk, an offset on that disk and the stripe's parity disk in constant time without allocating.
+ */
+public class StripeLayout {
+    public static final int MIN_DISCS = 3;
+    /**
+     * One word per chunk. Real arrays use 4 KiB to 1 MiB chunks; smaller ones are accepted so
+     * tests and the bit-level simulator can cover many stripes with little data.
+     */
+    public static final int MIN_CHUNK_SIZE = 8;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+    private final int numberOfDiscs;
+    private final int chunkSize;
+    private final int[] parityTable;
+
+    public StripeLayout(int numberOfDiscs) {
+        this(numberOfDiscs, DEFAULT_CHUNK_SIZE);
+    }
+
+    public StripeLayout(int numberOfDiscs, int chunkSize) {
+        // Two data chunks and a parity chunk; with two discs the "parity" would just be a mirror
+        if (numberOfDiscs < MIN_DISCS) {
+            throw new IllegalArgumentException("RAID5 needs at least " + MIN_DISCS + " discs, got " + numberOfDiscs);
+        }
+        // Chunks are whole long words so parity can be computed a word at a time
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE || chunkSize % 8 != 0) {
+            throw new IllegalArgumentException("Chunk size must be a multiple of 8 between "
+                    + MIN_CHUNK_SIZE + " and " + MAX_CHUNK_SIZE + " bytes, got " + chunkSize);
+        }
+        this.numberOfDiscs = numberOfDiscs;
+        this.chunkSize = chunkSize;
+        this.parityTable = rotationTable(numberOfDiscs);
+    }
+
+    public int getNumberOfDiscs() {
+        return numberOfDiscs;
+    }
+
+    /**
+     * Bytes per disc per stripe.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunkWords() {
+        return chunkSize / 8;
+    }
+
+    /**
+     * Data bytes held by one stripe, i.e. all chunks except the parity chunk.
+     */
+    public long getStripeSize() {
+        return (long) chunkSize * (numberOfDiscs - 1);
+    }
+
+    public long stripeCount(long dataLength) {
+        return (dataLength + getStripeSize() - 1) / getStripeSize();
+    }
+
+    /**
+     * Bytes every disc needs to hold dataLength bytes of data.
+     */
+    public long discSize(long dataLength) {
+        return stripeCount(dataLength) * chunkSize;
+    }
+
+    /**
+     * Disc holding the given data chunk of a stripe; data chunks fill the discs in order, skipping
+     * the parity disc.
+     */
+    public static int dataDisc(int parityDisc, int position) {
+        return position < parityDisc ? position : position + 1;
+    }
+
+    /**
+     * Parity disc of a stripe (or of a row in the bit layout). The parity walks from the last disc
+     * down to disc 0 and back up, so it repeats every 2 * (numberOfDiscs - 1) stripes.
+     */
+    public static int parityDisc(long stripe, int numberOfDiscs) {
+        int period = 2 * (numberOfDiscs - 1);
+        int phase = (int) (stripe % period);
+        return phase < numberOfDiscs ? numberOfDiscs - 1 - phase : phase - (numberOfDiscs - 1);
+    }
+
+    /**
+     * Parity disc of every stripe of one rotation period; stripe s uses entry s % length.
+     */
+    public static int[] rotationTable(int numberOfDiscs) {
+        int[] table = new int[2 * (numberOfDiscs - 1)];
+        for (int phase = 0; phase < table.length; phase++) {
+            table[phase] = parityDisc(phase, numberOfDiscs);
+        }
+        return table;
+    }
+
+    public int parityDisc(long stripe) {
+        return parityTable[(int) (stripe % parityTable.length)];
+    }
+
+    public long stripeOf(long offset) {
+        return offset / getStripeSize();
+    }
+
+    /**
+     * Disc holding the data byte at the given logical offset.
+     */
+    public int discOf(long offset) {
+        long chunk = offset / chunkSize;
+        long stripe = chunk / (numberOfDiscs - 1);
+        return dataDisc(parityDisc(stripe), (int) (chunk - stripe * (numberOfDiscs - 1)));
+    }
+
+    /**
+     * Byte offset on discOf(offset) where the data byte at the given logical offset is stored.
+     */
+    public long discOffsetOf(long offset) {
+        return stripeOf(offset) * chunkSize + offset % chunkSize;
+    }
+
+    /**
+     * Parity position of the given stripe as the state adjustSkipIndex would have reached.
+     */
+    public Cluster.Result rotationAt(long stripe) {
+        // The walk goes down from phase 1 to numberOfDiscs - 1. Phase 0 is reached going down only
+        // at the very first stripe; every later period arrives there still going up and turns
+        // around one stripe later.
+        int phase = (int) (stripe % parityTable.length);
+        return new Cluster.Result(parityDisc(stripe), stripe == 0 || (phase >= 1 && phase < numberOfDiscs));
+    }
+
+    @Override
+    public String toString() {
+        return numberOfDiscs + " discs, " + chunkSize + " byte chunks";
+    }
+}
@@ -0,0 +1,265 @@
+package pk.wieik.raidjavafx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Persisted record of the stripes that may be in the middle of a write, so that after a crash only
+ * their parity has to be recomputed instead of running sumControl over the whole array (the RAID5
+ * write hole). Stripes are grouped into regions of regionStripes stripes, one bit per region.
+ *
+ * <p>startWrite sets the region's bit and forces it to the file before the caller touches the
+ * discs; only the first write into a clean region pays for that. endWrite does not clear the bit:
+ * bits of regions without writes in progress are cleared in batches by clean, after the discs have
+ * been forced, so a region that is written over and over stays dirty instead of being synced on
+ * every write.
+ *
+ * <p>File layout: magic, version, regionStripes, then the bitmap as little-endian longs.
+ */
+public class WriteIntentBitmap implements Closeable {
+    public static final int DEFAULT_REGION_STRIPES = 64;
+    public static final String FILE_NAME = "intent.bitmap";
+
+    private static final int MAGIC = 0x52574942; // RWIB
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+
+    private final FileChannel channel;
+    private final int regionStripes;
+    private long[] dirty;
+    // Writes in progress per region, and writes started so far, so clean can tell whether a
+    // region was written while the discs were being forced
+    private int[] inFlight;
+    private long[] started;
+
+    private WriteIntentBitmap(FileChannel channel, int regionStripes, long[] dirty) {
+        this.channel = channel;
+        this.regionStripes = regionStripes;
+        this.dirty = dirty;
+        this.inFlight = new int[dirty.length * 64];
+        this.started = new long[dirty.length * 64];
+    }
+
+    public static Path file(Path directory) {
+        return directory.resolve(FILE_NAME);
+    }
+
+    /**
+     * Opens the bitmap file, creating a clean one with the given region size if it does not exist.
+     * An existing file keeps the region size it was created with.
+     */
+    public static WriteIntentBitmap open(Path file, int regionStripes) throws IOException {
+        if (regionStripes < 1) {
+            throw new IllegalArgumentException("A region needs at least one stripe, got " + regionStripes);
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(regionStripes).putInt(0).flip();
+                channel.write(header, 0);
+                channel.force(false);
+                return new WriteIntentBitmap(channel, regionStripes, new long[0]);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+                // read the whole file
+            }
+            buffer.flip();
+            if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a write-intent bitmap: " + file);
+            }
+            int storedRegionStripes = buffer.getInt();
+            buffer.getInt();
+            long[] dirty = new long[buffer.remaining() / 8];
+            buffer.asLongBuffer().get(dirty);
+            return new WriteIntentBitmap(channel, storedRegionStripes, dirty);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getRegionStripes() {
+        return regionStripes;
+    }
+
+    public synchronized boolean isClean() {
+        for (long word : dirty) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of regions marked dirty.
+     */
+    public synchronized int dirtyRegions() {
+        int count = 0;
+        for (long word : dirty) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public void startWrite(long stripe) {
+        startWrite(stripe, stripe + 1);
+    }
+
+    /**
+     * Marks the regions of stripes fromStripe to toStripe - 1 as being written, durably, before
+     * returning.
+     */
+    public synchronized void startWrite(long fromStripe, long toStripe) {
+        if (fromStripe >= toStripe) {
+            return;
+        }
+        int last = region(toStripe - 1);
+        ensureRegions(last + 1);
+        int firstChanged = -1;
+        int lastChanged = -1;
+        for (int region = region(fromStripe); region <= last; region++) {
+            inFlight[region]++;
+            started[region]++;
+            if ((dirty[region >>> 6] & (1L << region)) == 0) {
+                dirty[region >>> 6] |= 1L << region;
+                if (firstChanged < 0) {
+                    firstChanged = region >>> 6;
+                }
+                lastChanged = region >>> 6;
+            }
+        }
+        if (firstChanged >= 0) {
+            persist(firstChanged, lastChanged + 1, true);
+        }
+    }
+
+    public void endWrite(long stripe) {
+        endWrite(stripe, stripe + 1);
+    }
+
+    /**
+     * Tells that the write started for these stripes has reached the discs. Their regions stay
+     * dirty until the next clean.
+     */
+    public synchronized void endWrite(long fromStripe, long toStripe) {
+        if (fromStripe >= toStripe) {
+            return;
+        }
+        for (int region = region(fromStripe); region <= region(toStripe - 1); region++) {
+            inFlight[region]--;
+        }
+    }
+
+    /**
+     * Clears the regions that have no write in progress. forceDiscs must make everything written
+     * so far durable; it runs without holding this bitmap's lock, and regions written to meanwhile
+     * stay dirty.
+     */
+    public void clean(Runnable forceDiscs) {
+        long[] candidates;
+        long[] startedBefore;
+        synchronized (this) {
+            candidates = new long[dirty.length];
+            for (int region = 0; region < dirty.length * 64; region++) {
+                if ((dirty[region >>> 6] & (1L << region)) != 0 && inFlight[region] == 0) {
+                    candidates[region >>> 6] |= 1L << region;
+                }
+            }
+            startedBefore = started.clone();
+        }
+
+        forceDiscs.run();
+
+        synchronized (this) {
+            boolean changed = false;
+            for (int region = 0; region < candidates.length * 64; region++) {
+                if ((candidates[region >>> 6] & (1L << region)) != 0
+                        && inFlight[region] == 0 && started[region] == startedBefore[region]) {
+                    dirty[region >>> 6] &= ~(1L << region);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                // Losing a clear only costs a needless resync, so no force here
+                persist(0, candidates.length, false);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the parity of every dirty region and clears the bitmap; call it on start-up,
+     * before the array is used. Returns the number of stripes resynced.
+     */
+    public synchronized long resync(DiscStore[] discs, StripeLayout layout) {
+        int failedIndex = Cluster.failedDisc(discs);
+        if (failedIndex >= 0 && !isClean()) {
+            throw new IllegalStateException("Disc " + failedIndex
+                    + " has failed, the parity of interrupted writes cannot be recomputed");
+        }
+        long stripes = discs[0].size() / 8 / layout.getChunkSize();
+        long resynced = 0;
+        for (int region = 0; region < dirty.length * 64; region++) {
+            if ((dirty[region >>> 6] & (1L << region)) != 0) {
+                long from = (long) region * regionStripes;
+                long to = Math.min(stripes, from + regionStripes);
+                if (from < to) {
+                    Cluster.sumControlStripes(discs, layout, from, to);
+                    resynced += to - from;
+                }
+            }
+        }
+        for (DiscStore disc : discs) {
+            disc.force();
+        }
+        Arrays.fill(dirty, 0L);
+        persist(0, dirty.length, true);
+        return resynced;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int region(long stripe) {
+        return Math.toIntExact(stripe / regionStripes);
+    }
+
+    private void ensureRegions(int regions) {
+        int words = (regions + 63) >>> 6;
+        if (words > dirty.length) {
+            int grown = Math.max(words, dirty.length * 2);
+            dirty = Arrays.copyOf(dirty, grown);
+            inFlight = Arrays.copyOf(inFlight, grown * 64);
+            started = Arrays.copyOf(started, grown * 64);
+        }
+    }
+
+    private void persist(int fromWord, int toWord, boolean force) {
+        ByteBuffer buffer = ByteBuffer.allocate((toWord - fromWord) * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asLongBuffer().put(dirty, fromWord, toWord - fromWord);
+        try {
+            long position = HEADER + fromWord * 8L;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot update write-intent bitmap", e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package pk.wieik.raidjavafx;
+
+/**
+ * The word-array kernels ParityEngine can hand to a faster implementation. Implemented by
+ * VectorXor, which is only compiled with {@code -Draid.vector} and so is looked up by name.
+ */
+interface XorKernels {
+
+    /**
+     * Number of longs one instruction works on.
+     */
+    int lanes();
+
+    void xor(long[] src, int srcOffset, long[] dst, int dstOffset, int length);
+
+    void xorMasked(long[] src, int srcOffset, long[] mask, long[] dst, int dstOffset, int length);
+}
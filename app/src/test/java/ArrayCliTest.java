@@ -0,0 +1,112 @@
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.ArrayCli;
+import pk.wieik.raidjavafx.ArrayMetadata;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArrayCliTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private Path dir;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("raid-cli");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+        Fixtures.deleteRecursively(dir);
+    }
+
+    private int run(InputStream in, String... args) {
+        out.reset();
+        err.reset();
+        return ArrayCli.run(args, in, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    private int run(String... args) {
+        return run(new ByteArrayInputStream(new byte[0]), args);
+    }
+
+    @Test
+    public void test_create_write_fail_rebuild_read() throws IOException {
+        byte[] data = Fixtures.randomData(100_000, 1);
+
+        // More discs than the interactive prompt allows
+        assertEquals(0, run("create", dir.toString(), "--discs", "12", "--chunk-size", "512"));
+        assertEquals(0, run(new ByteArrayInputStream(data), "write", dir.toString()));
+        assertEquals(data.length, ArrayMetadata.load(dir).getDataSize());
+
+        assertEquals(0, run("read", dir.toString()));
+        assertArrayEquals(data, out.toByteArray());
+
+        assertEquals(0, run("fail", dir.toString(), "--disc", "7", "--truncate"));
+        assertEquals(7, ArrayMetadata.load(dir).getFailedDisc());
+        assertEquals(1, run("fail", dir.toString(), "--disc", "3"));
+        Path degraded = dir.resolve("degraded.bin");
+        assertEquals(0, run("read", dir.toString(), "--output", degraded.toString()));
+        assertArrayEquals(data, Files.readAllBytes(degraded));
+        assertEquals(1, run("verify", dir.toString()));
+
+        assertEquals(0, run("rebuild", dir.toString()));
+        assertEquals(-1, ArrayMetadata.load(dir).getFailedDisc());
+        assertEquals(0, run("verify", dir.toString()));
+        assertEquals(0, run("read", dir.toString()));
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(0, run("info", dir.toString()));
+        assertTrue(out.toString().contains("12 discs, 512 byte chunks"), out.toString());
+    }
+
+    @Test
+    public void test_write_from_file_and_verify_repair() throws IOException {
+        Path input = dir.resolve("input.bin");
+        byte[] data = Fixtures.randomData(20_000, 2);
+        Files.write(input, data);
+
+        assertEquals(0, run("create", dir.toString(), "--discs", "4", "--chunk-size", "64"));
+        assertEquals(0, run("write", dir.toString(), "--input", input.toString()));
+
+        // Flip a bit in the parity chunk of stripe 10
+        StripeLayout layout = new StripeLayout(4, 64);
+        try (RandomAccessFile file = new RandomAccessFile(Cluster.discFile(dir, layout.parityDisc(10)).toFile(), "rw")) {
+            file.seek(10 * 64 + 5);
+            int value = file.read();
+            file.seek(10 * 64 + 5);
+            file.write(value ^ 0x04);
+        }
+
+        assertEquals(1, run("verify", dir.toString()));
+        assertTrue(out.toString().contains("Parity mismatch in stripe 10"), out.toString());
+        assertEquals(0, run("verify", dir.toString(), "--repair"));
+        assertEquals(0, run("verify", dir.toString()));
+        assertEquals(0, run("read", dir.toString()));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void test_usage_errors() throws IOException {
+        assertEquals(2, run());
+        assertEquals(2, run("create", dir.toString()));
+        assertEquals(2, run("create", dir.toString(), "--discs", "many"));
+        assertEquals(2, run("explode", dir.toString()));
+        assertEquals(1, run("create", dir.toString(), "--discs", "1"));
+        assertEquals(1, run("read", dir.resolve("missing").toString()));
+        assertEquals(0, run("create", dir.toString(), "--discs", "3"));
+        assertEquals(2, run("fail", dir.toString(), "--disc", "3"));
+    }
+}
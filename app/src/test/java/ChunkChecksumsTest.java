@@ -0,0 +1,120 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.ChunkChecksums;
+import pk.wieik.raidjavafx.DiscStore;
+import pk.wieik.raidjavafx.ParityScrubber;
+import pk.wieik.raidjavafx.RaidArray;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkChecksumsTest {
+
+    private static void flipByte(DiscStore disc, long offset) {
+        byte[] value = new byte[1];
+        disc.readBytes(offset, value, 0, 1);
+        value[0] ^= 0x01;
+        disc.writeBytes(offset, value, 0, 1);
+    }
+
+    private static void assertAllVerified(RaidArray array) {
+        DiscStore[] discs = Fixtures.discsOf(array);
+        ChunkChecksums checksums = array.getChecksums();
+        for (long stripe = 0; stripe < checksums.getStripes(); stripe++) {
+            assertEquals(-1, checksums.findCorrupt(discs, stripe), "Stripe " + stripe);
+        }
+    }
+
+    @Test
+    public void test_read_repairs_corrupt_chunk() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        byte[] data = Fixtures.randomData(192 * 20, 1);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        array.enableChecksums();
+
+        // Byte 10 of the second data chunk of stripe 5
+        long stripe = 5;
+        int disc = StripeLayout.dataDisc(layout.parityDisc(stripe), 1);
+        flipByte(array.getDisc(disc), stripe * 64 + 10);
+
+        assertArrayEquals(data, array.read(0, data.length));
+        assertEquals(1, array.getChecksums().getRepaired());
+        byte[] repaired = new byte[64];
+        array.getDisc(disc).readBytes(stripe * 64, repaired, 0, 64);
+        assertArrayEquals(Arrays.copyOfRange(data, 192 * 5 + 64, 192 * 5 + 128), repaired);
+        assertAllVerified(array);
+    }
+
+    @Test
+    public void test_reads_outside_corrupt_chunk_do_not_repair() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        byte[] data = Fixtures.randomData(192 * 4, 2);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        array.enableChecksums();
+        flipByte(array.getDisc(StripeLayout.dataDisc(layout.parityDisc(0), 2)), 0);
+
+        array.read(0, 128);
+        assertEquals(0, array.getChecksums().getRepaired());
+        assertArrayEquals(Arrays.copyOf(data, 192), array.read(0, 192));
+        assertEquals(1, array.getChecksums().getRepaired());
+    }
+
+    @Test
+    public void test_writes_and_rebuild_keep_checksums_current() {
+        StripeLayout layout = new StripeLayout(5, 32);
+        byte[] expected = Fixtures.randomData(128 * 30, 3);
+        RaidArray array = RaidArray.create(layout, expected.length);
+        array.save(expected);
+        array.enableChecksums();
+
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            if (i == 100) {
+                array.fail(3, true);
+            }
+            int offset = random.nextInt(expected.length);
+            byte[] update = Fixtures.randomData(random.nextInt(Math.min(300, expected.length - offset)) + 1, i);
+            array.write(offset, update);
+            System.arraycopy(update, 0, expected, offset, update.length);
+        }
+        array.rebuild(3);
+
+        assertAllVerified(array);
+        assertArrayEquals(expected, array.read(0, expected.length));
+        assertEquals(0, array.getChecksums().getRepaired());
+    }
+
+    @Test
+    public void test_scrubber_repairs_the_corrupt_chunk_instead_of_parity() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(96 * 10, 4);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        array.enableChecksums();
+        flipByte(array.getDisc(StripeLayout.dataDisc(layout.parityDisc(7), 0)), 7 * 32 + 3);
+
+        ParityScrubber scrubber = new ParityScrubber(array, 0, true);
+        assertEquals(1, scrubber.scrub());
+        assertEquals(List.of(7L), scrubber.getMismatches());
+        assertEquals(1, array.getChecksums().getRepaired());
+        assertAllVerified(array);
+        assertArrayEquals(data, array.read(0, data.length));
+    }
+
+    @Test
+    public void test_two_corrupt_chunks_in_a_stripe_are_reported() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        RaidArray array = RaidArray.create(layout, 96 * 3);
+        array.save(Fixtures.randomData(96 * 3, 5));
+        array.enableChecksums();
+        flipByte(array.getDisc(StripeLayout.dataDisc(layout.parityDisc(1), 0)), 32);
+        flipByte(array.getDisc(StripeLayout.dataDisc(layout.parityDisc(1), 1)), 33);
+
+        assertThrows(IllegalStateException.class, () -> array.read(96, 96));
+    }
+}
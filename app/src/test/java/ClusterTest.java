@@ -2,10 +2,13 @@ import org.testng.annotations.Test;
 import pk.wieik.raidjavafx.Bit;
 import pk.wieik.raidjavafx.Cluster;
 import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.PackedDisc;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static junit.framework.Assert.assertEquals;
 import static org.junit.jupiter.api.Assertions.*;
@@ -232,6 +235,142 @@ public class ClusterTest {
         assertTrue(result.decrementing);
     }
 
+    @Test
+    public void test_packed_save_and_read_matches_bit_lists() {
+        String inputData = "11101010101010101010101010101010101010101010101010";
+        Disc disc = new Disc(5, inputData);
+
+        List<List<Bit>> listOfDiscs = Cluster.createDiscList(disc);
+        Cluster.saveData(Cluster.toList(disc), listOfDiscs);
+
+        PackedDisc[] discs = Cluster.createDiscArray(disc);
+        Cluster.saveData(Cluster.toPackedDisc(disc), discs);
+
+        for (int i = 0; i < discs.length; i++) {
+            List<Bit> expected = listOfDiscs.get(i);
+            assertEquals(expected.size(), discs[i].size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).getBit(), discs[i].getBit(j));
+            }
+        }
+        assertEquals(inputData, Cluster.readData(discs, inputData.length()).toString());
+    }
+
+    @Test
+    public void test_packed_parity_bitmap() {
+        Disc disc = new Disc(4, "101011");
+        PackedDisc[] discs = Cluster.createDiscArray(disc);
+        Cluster.saveData(Cluster.toPackedDisc(disc), discs);
+        // Parity rotates 3, 2 over the two rows
+        assertTrue(discs[3].isParityBit(0));
+        assertFalse(discs[2].isParityBit(0));
+        assertTrue(discs[2].isParityBit(1));
+        assertFalse(discs[3].isParityBit(1));
+    }
+
+    @Test
+    public void test_packed_recover_data() {
+        String inputData = "1110101100111010001011110000101010111100101010110011";
+        Disc disc = new Disc(4, inputData);
+        PackedDisc[] discs = Cluster.createDiscArray(disc);
+        Cluster.saveData(Cluster.toPackedDisc(disc), discs);
+
+        for (int damagedDiscIndex = 0; damagedDiscIndex < discs.length; damagedDiscIndex++) {
+            String actualDataInDisc = discs[damagedDiscIndex].toString();
+            Cluster.simulateDamage(new Disc(damagedDiscIndex), discs);
+            PackedDisc recoveredData = Cluster.recoverData(discs, damagedDiscIndex, inputData.length());
+            assertEquals(actualDataInDisc, recoveredData.toString());
+            assertEquals(inputData, Cluster.readData(discs, inputData.length()).toString());
+        }
+    }
+
+    @Test
+    public void test_packed_parity_matches_bit_lists_on_large_input() {
+        Random random = new Random(42);
+        StringBuilder inputData = new StringBuilder("1");
+        for (int i = 1; i < 20011; i++) {
+            inputData.append(random.nextBoolean() ? '1' : '0');
+        }
+        Disc disc = new Disc(6, inputData.toString());
+
+        List<List<Bit>> listOfDiscs = Cluster.createDiscList(disc);
+        Cluster.saveData(Cluster.toList(disc), listOfDiscs);
+        PackedDisc[] discs = Cluster.createDiscArray(disc);
+        Cluster.saveData(Cluster.toPackedDisc(disc), discs);
+
+        for (int i = 0; i < discs.length; i++) {
+            assertEquals(PackedDisc.fromBits(listOfDiscs.get(i)).toString(), discs[i].toString());
+        }
+
+        String actualDataInDisc = discs[0].toString();
+        Cluster.simulateDamage(new Disc(0), discs);
+        assertEquals(actualDataInDisc, Cluster.recoverData(discs, 0, inputData.length()).toString());
+        assertEquals(inputData.toString(), Cluster.readData(discs, inputData.length()).toString());
+    }
+
+    @Test
+    public void test_packed_parallel_parity_and_recovery() {
+        Random random = new Random(7);
+        PackedDisc data = new PackedDisc(500_003);
+        for (long i = 0; i < data.size(); i++) {
+            data.setBit(i, random.nextBoolean());
+        }
+        PackedDisc[] discs = new PackedDisc[5];
+        PackedDisc[] expected = new PackedDisc[5];
+        for (int i = 0; i < discs.length; i++) {
+            discs[i] = new PackedDisc();
+            expected[i] = new PackedDisc();
+        }
+        Cluster.saveData(data, expected);
+        Cluster.saveData(data, discs);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Cluster.sumControl(discs, pool);
+        for (int i = 0; i < discs.length; i++) {
+            assertEquals(expected[i].toString(), discs[i].toString());
+        }
+
+        Cluster.simulateDamage(new Disc(3), discs);
+        Cluster.recoverData(discs, 3, data.size(), pool);
+        assertEquals(expected[3].toString(), discs[3].toString());
+        assertEquals(data.toString(), Cluster.readData(discs, data.size()).toString());
+        pool.shutdown();
+    }
+
+    @Test
+    public void test_packed_disc_grows_and_shrinks() {
+        PackedDisc disc = new PackedDisc();
+        for (int i = 0; i < 200; i++) {
+            disc.add(i % 3 == 0);
+        }
+        assertEquals(200, disc.size());
+        assertTrue(disc.getBit(198));
+        disc.setSize(100);
+        disc.setSize(200);
+        assertFalse(disc.getBit(198));
+        assertTrue(disc.getBit(99));
+    }
+
+    @Test
+    public void test_packed_recovery_on_copies_leaves_originals_alone() {
+        String inputData = "1110101100111010001011110000101010111100101010110011";
+        Disc disc = new Disc(4, inputData);
+        PackedDisc[] discs = Cluster.createDiscArray(disc);
+        Cluster.saveData(Cluster.toPackedDisc(disc), discs);
+        Cluster.simulateDamage(new Disc(2), discs);
+
+        PackedDisc[] copies = new PackedDisc[discs.length];
+        for (int i = 0; i < discs.length; i++) {
+            copies[i] = discs[i].copy();
+        }
+        String damaged = discs[2].toString();
+        Cluster.recoverData(copies, 2, inputData.length());
+        assertTrue(discs[2].isFailed());
+        assertEquals(damaged, discs[2].toString());
+        assertFalse(copies[2].isFailed());
+        assertEquals(inputData, Cluster.readData(copies, inputData.length()).toString());
+    }
+
     private List<Boolean> cleanParityInfo(List<Bit> list){
         List<Boolean> returnList = new ArrayList<>();
         for(Bit bit:list){
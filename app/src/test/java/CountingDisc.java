@@ -0,0 +1,107 @@
+import pk.wieik.raidjavafx.DiscStore;
+import pk.wieik.raidjavafx.PackedDisc;
+
+/**
+ * In-memory disc that counts how often it is read and written.
+ */
+public class CountingDisc implements DiscStore {
+    private final PackedDisc disc;
+    public int reads;
+    public int writes;
+
+    public CountingDisc(long size) {
+        this.disc = new PackedDisc(size);
+    }
+
+    public static CountingDisc[] array(int numberOfDiscs, long size) {
+        CountingDisc[] discs = new CountingDisc[numberOfDiscs];
+        for (int i = 0; i < numberOfDiscs; i++) {
+            discs[i] = new CountingDisc(size);
+        }
+        return discs;
+    }
+
+    public static int reads(CountingDisc[] discs) {
+        int reads = 0;
+        for (CountingDisc disc : discs) {
+            reads += disc.reads;
+        }
+        return reads;
+    }
+
+    public static int writes(CountingDisc[] discs) {
+        int writes = 0;
+        for (CountingDisc disc : discs) {
+            writes += disc.writes;
+        }
+        return writes;
+    }
+
+    public static void reset(CountingDisc[] discs) {
+        for (CountingDisc disc : discs) {
+            disc.reads = 0;
+            disc.writes = 0;
+        }
+    }
+
+    @Override
+    public long size() {
+        return disc.size();
+    }
+
+    @Override
+    public boolean isFailed() {
+        return disc.isFailed();
+    }
+
+    @Override
+    public void setFailed(boolean failed) {
+        disc.setFailed(failed);
+    }
+
+    @Override
+    public void setSize(long size) {
+        disc.setSize(size);
+    }
+
+    @Override
+    public void readWords(long index, long[] dst, int dstOffset, int length) {
+        reads++;
+        disc.readWords(index, dst, dstOffset, length);
+    }
+
+    @Override
+    public void writeWords(long index, long[] src, int srcOffset, int length) {
+        writes++;
+        disc.writeWords(index, src, srcOffset, length);
+    }
+
+    @Override
+    public void xorWords(long index, long[] dst, int dstOffset, int length) {
+        reads++;
+        disc.xorWords(index, dst, dstOffset, length);
+    }
+
+    @Override
+    public void readBytes(long offset, byte[] dst, int dstOffset, int length) {
+        reads++;
+        disc.readBytes(offset, dst, dstOffset, length);
+    }
+
+    @Override
+    public void writeBytes(long offset, byte[] src, int srcOffset, int length) {
+        writes++;
+        disc.writeBytes(offset, src, srcOffset, length);
+    }
+
+    @Override
+    public void zero() {
+        writes++;
+        disc.zero();
+    }
+
+    @Override
+    public String toString() {
+        return disc.toString();
+    }
+}
@@ -0,0 +1,102 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.MappedDisc;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DegradedReadTest {
+
+    @Test
+    public void test_packed_read_after_damage() {
+        String inputData = "1110101100111010001011110000101010111100101010110011";
+        Disc disc = new Disc(5, inputData);
+        PackedDisc[] discs = Cluster.createDiscArray(disc);
+        Cluster.saveData(Cluster.toPackedDisc(disc), discs);
+
+        for (int damagedDiscIndex = 0; damagedDiscIndex < discs.length; damagedDiscIndex++) {
+            Cluster.simulateDamage(new Disc(damagedDiscIndex), discs);
+            assertEquals(inputData, Cluster.readData(discs, inputData.length()).toString());
+            Cluster.recoverData(discs, damagedDiscIndex, inputData.length());
+            assertFalse(discs[damagedDiscIndex].isFailed());
+        }
+    }
+
+    @Test
+    public void test_striped_read_after_damage() throws IOException {
+        StripeLayout layout = new StripeLayout(4, 64);
+        byte[] data = Fixtures.randomData(9_999, 1);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+
+        for (int damaged = 0; damaged < discs.length; damaged++) {
+            Cluster.simulateDamage(new Disc(damaged), discs, false);
+            assertTrue(discs[damaged].isFailed());
+            assertArrayEquals(data, Cluster.readData(discs, layout, data.length));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Cluster.readData(discs, layout, data.length, out);
+            assertArrayEquals(data, out.toByteArray());
+            Cluster.recoverData(discs, damaged, layout);
+        }
+    }
+
+    @Test
+    public void test_file_backed_read_after_truncation() throws IOException {
+        Path directory = Files.createTempDirectory("raid5");
+        try {
+            StripeLayout layout = new StripeLayout(3, 4096);
+            byte[] data = Fixtures.randomData(100_000, 2);
+            MappedDisc[] discs = Cluster.createDiscArray(directory, layout, data.length);
+            Cluster.saveData(data, discs, layout);
+
+            Cluster.simulateDamage(new Disc(1), discs, true);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Cluster.readData(discs, layout, data.length, out);
+            assertArrayEquals(data, out.toByteArray());
+            for (MappedDisc disc : discs) {
+                disc.close();
+            }
+        } finally {
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void test_writes_while_degraded() {
+        StripeLayout layout = new StripeLayout(5, 64);
+        byte[] expected = Fixtures.randomData(20_000, 3);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, expected.length);
+        Cluster.saveData(expected, discs, layout);
+        Cluster.simulateDamage(new Disc(3), discs, false);
+
+        Random random = new Random(4);
+        for (int i = 0; i < 100; i++) {
+            int offset = random.nextInt(expected.length);
+            byte[] update = Fixtures.randomData(random.nextInt(Math.min(1000, expected.length - offset) + 1), i);
+            Cluster.write(discs, layout, offset, update);
+            System.arraycopy(update, 0, expected, offset, update.length);
+        }
+        assertArrayEquals(expected, Cluster.readData(discs, layout, expected.length));
+
+        Cluster.recoverData(discs, 3, layout);
+        assertArrayEquals(expected, Cluster.readData(discs, layout, expected.length));
+    }
+
+    @Test
+    public void test_second_failure_is_reported() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, 1000);
+        Cluster.saveData(Fixtures.randomData(1000, 5), discs, layout);
+        Cluster.simulateDamage(new Disc(0), discs, false);
+        Cluster.simulateDamage(new Disc(2), discs, false);
+        assertThrows(IllegalStateException.class, () -> Cluster.readData(discs, layout, 1000));
+    }
+}
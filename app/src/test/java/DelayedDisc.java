@@ -0,0 +1,115 @@
+import pk.wieik.raidjavafx.DiscStore;
+import pk.wieik.raidjavafx.PackedDisc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory disc that sleeps before every read and write, like a disc with access latency. The
+ * discs of one array count the accesses in flight across all of them, so tests can tell whether
+ * they were used one at a time.
+ */
+public class DelayedDisc implements DiscStore {
+    private final PackedDisc disc;
+    private final long delayMillis;
+    private final AtomicInteger active;
+    private final AtomicInteger peak;
+
+    public DelayedDisc(long size, long delayMillis) {
+        this(size, delayMillis, new AtomicInteger(), new AtomicInteger());
+    }
+
+    private DelayedDisc(long size, long delayMillis, AtomicInteger active, AtomicInteger peak) {
+        this.disc = new PackedDisc(size);
+        this.delayMillis = delayMillis;
+        this.active = active;
+        this.peak = peak;
+    }
+
+    public static DelayedDisc[] array(int numberOfDiscs, long size, long delayMillis) {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        DelayedDisc[] discs = new DelayedDisc[numberOfDiscs];
+        for (int i = 0; i < numberOfDiscs; i++) {
+            discs[i] = new DelayedDisc(size, delayMillis, active, peak);
+        }
+        return discs;
+    }
+
+    /**
+     * Most accesses in flight at once on the discs of this disc's array since the last call.
+     */
+    public int takePeak() {
+        return peak.getAndSet(0);
+    }
+
+    private void delay() {
+        peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    @Override
+    public long size() {
+        return disc.size();
+    }
+
+    @Override
+    public boolean isFailed() {
+        return disc.isFailed();
+    }
+
+    @Override
+    public void setFailed(boolean failed) {
+        disc.setFailed(failed);
+    }
+
+    @Override
+    public void setSize(long size) {
+        disc.setSize(size);
+    }
+
+    @Override
+    public void readWords(long index, long[] dst, int dstOffset, int length) {
+        delay();
+        disc.readWords(index, dst, dstOffset, length);
+    }
+
+    @Override
+    public void writeWords(long index, long[] src, int srcOffset, int length) {
+        delay();
+        disc.writeWords(index, src, srcOffset, length);
+    }
+
+    @Override
+    public void xorWords(long index, long[] dst, int dstOffset, int length) {
+        delay();
+        disc.xorWords(index, dst, dstOffset, length);
+    }
+
+    @Override
+    public void readBytes(long offset, byte[] dst, int dstOffset, int length) {
+        delay();
+        disc.readBytes(offset, dst, dstOffset, length);
+    }
+
+    @Override
+    public void writeBytes(long offset, byte[] src, int srcOffset, int length) {
+        delay();
+        disc.writeBytes(offset, src, srcOffset, length);
+    }
+
+    @Override
+    public void zero() {
+        disc.zero();
+    }
+
+    @Override
+    public String toString() {
+        return disc.toString();
+    }
+}
@@ -0,0 +1,79 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.DiscScheduler;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiscSchedulerTest {
+
+    @Test
+    public void test_parallel_operations_match_sequential_ones() {
+        StripeLayout layout = new StripeLayout(5, 64);
+        byte[] data = Fixtures.randomData(64 * 4 * 30 + 77, 1);
+        PackedDisc[] sequential = Cluster.createDiscArray(layout, data.length);
+        PackedDisc[] parallel = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, sequential, layout);
+
+        try (DiscScheduler scheduler = new DiscScheduler()) {
+            Cluster.saveData(data, parallel, layout, scheduler);
+            for (int i = 0; i < parallel.length; i++) {
+                assertEquals(sequential[i].toString(), parallel[i].toString());
+            }
+            assertArrayEquals(data, Cluster.readData(parallel, layout, data.length, scheduler));
+
+            String parity = parallel[4].toString();
+            parallel[4].writeBytes(0, new byte[64], 0, 64);
+            Cluster.sumControl(parallel, layout, scheduler);
+            assertEquals(parity, parallel[4].toString());
+
+            Cluster.simulateDamage(new Disc(2), parallel, false);
+            assertArrayEquals(data, Cluster.readData(parallel, layout, data.length, scheduler));
+            Cluster.recoverData(parallel, 2, layout, scheduler);
+            assertEquals(sequential[2].toString(), parallel[2].toString());
+            assertFalse(parallel[2].isFailed());
+        }
+    }
+
+    @Test
+    public void test_stripe_accesses_discs_at_once() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        byte[] data = Fixtures.randomData((int) layout.getStripeSize() * 4, 2);
+        DelayedDisc[] discs = DelayedDisc.array(4, layout.discSize(data.length) * 8, 20);
+
+        Cluster.saveData(data, discs, layout);
+        assertEquals(1, discs[0].takePeak());
+
+        try (DiscScheduler scheduler = new DiscScheduler()) {
+            // The stripe takes as long as its slowest disc rather than the sum of all of them
+            Cluster.saveData(data, discs, layout, scheduler);
+            assertTrue(discs[0].takePeak() > 1);
+            assertArrayEquals(data, Cluster.readData(discs, layout, data.length, scheduler));
+            assertTrue(discs[0].takePeak() > 1);
+        }
+    }
+
+    @Test
+    public void test_failure_is_rethrown_after_all_tasks_finish() {
+        AtomicInteger finished = new AtomicInteger();
+        try (DiscScheduler scheduler = new DiscScheduler()) {
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> scheduler.run(4, i -> {
+                if (i == 2) {
+                    throw new IllegalStateException("disc " + i);
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.incrementAndGet();
+            }));
+            assertEquals("disc 2", e.getMessage());
+            assertEquals(3, finished.get());
+        }
+    }
+}
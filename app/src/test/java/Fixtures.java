@@ -0,0 +1,73 @@
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.DiscStore;
+import pk.wieik.raidjavafx.RaidArray;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Data and checks shared by the array tests.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * The same length bytes for the same seed.
+     */
+    public static byte[] randomData(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    public static DiscStore[] discsOf(RaidArray array) {
+        DiscStore[] discs = new DiscStore[array.getNumberOfDiscs()];
+        for (int i = 0; i < discs.length; i++) {
+            discs[i] = array.getDisc(i);
+        }
+        return discs;
+    }
+
+    /**
+     * Checks that every disc, data and parity alike, can be rebuilt from the others as it is.
+     * Zeroes and rebuilds each disc in turn.
+     */
+    public static void assertParityConsistent(DiscStore[] discs, StripeLayout layout) {
+        for (int i = 0; i < discs.length; i++) {
+            String expected = discs[i].toString();
+            discs[i].zero();
+            assertEquals(expected, Cluster.recoverData(discs, i, layout).toString());
+        }
+    }
+
+    public static void assertParityConsistent(RaidArray array) {
+        assertParityConsistent(discsOf(array), array.getLayout());
+    }
+
+    /**
+     * Deletes a temporary file or directory with everything in it, if it still exists.
+     */
+    public static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(path)) {
+            // Children before their directory
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path p : paths) {
+            Files.delete(p);
+        }
+    }
+}
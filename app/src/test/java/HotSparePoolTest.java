@@ -0,0 +1,92 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.DiscStore;
+import pk.wieik.raidjavafx.HotSparePool;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.RaidArray;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotSparePoolTest {
+
+    @Test
+    public void test_spare_is_promoted_and_rebuilt_during_io() throws Exception {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] expected = Fixtures.randomData(96 * 2000, 1);
+        RaidArray array = RaidArray.create(layout, expected.length);
+        array.save(expected);
+        PackedDisc spare = new PackedDisc();
+        HotSparePool pool = new HotSparePool(array, spare);
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int owner = t;
+            Thread writer = new Thread(() -> {
+                Random random = new Random(owner);
+                for (int i = 0; i < 2000; i++) {
+                    int offset = random.nextInt(expected.length / 3) * 3 + owner;
+                    byte[] value = {(byte) random.nextInt()};
+                    array.write(offset, value);
+                    expected[offset] = value[0];
+                    array.read(random.nextInt(expected.length - 100), 100);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        DiscStore failed = array.getDisc(2);
+        array.fail(2, true);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        pool.awaitRebuild();
+
+        assertNull(pool.getLastFailure());
+        assertSame(spare, array.getDisc(2));
+        assertEquals(List.of(failed), pool.getRetired());
+        assertEquals(0, pool.getSpareCount());
+        assertEquals(1, pool.getRebuilds());
+        assertEquals(-1, array.failedDisc());
+        assertArrayEquals(expected, array.read(0, expected.length));
+        Fixtures.assertParityConsistent(array);
+    }
+
+    @Test
+    public void test_failure_waits_for_a_spare() throws Exception {
+        StripeLayout layout = new StripeLayout(5, 64);
+        byte[] data = Fixtures.randomData(256 * 100, 2);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        HotSparePool pool = HotSparePool.create(array, 0);
+
+        array.fail(0, false);
+        pool.awaitRebuild();
+        assertEquals(0, array.failedDisc());
+        assertArrayEquals(data, array.read(0, data.length));
+
+        pool.addSpare(new PackedDisc());
+        pool.awaitRebuild();
+        assertEquals(-1, array.failedDisc());
+        assertEquals(1, pool.getRebuilds());
+        assertArrayEquals(data, array.read(0, data.length));
+        Fixtures.assertParityConsistent(array);
+    }
+
+    @Test
+    public void test_closed_pool_ignores_failures() throws Exception {
+        StripeLayout layout = new StripeLayout(3, 32);
+        RaidArray array = RaidArray.create(layout, 64 * 10);
+        array.save(Fixtures.randomData(64 * 10, 3));
+        HotSparePool pool = HotSparePool.create(array, 1);
+        pool.close();
+
+        array.fail(1, true);
+        pool.awaitRebuild();
+        assertEquals(1, array.failedDisc());
+        assertEquals(1, pool.getSpareCount());
+    }
+}
@@ -0,0 +1,114 @@
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.MappedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedDiscTest {
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("raid5");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+        Fixtures.deleteRecursively(directory);
+    }
+
+    private static void closeAll(MappedDisc[] discs) throws IOException {
+        for (MappedDisc disc : discs) {
+            disc.close();
+        }
+    }
+
+    @Test
+    public void test_data_survives_reopening() throws IOException {
+        StripeLayout layout = new StripeLayout(4, 4096);
+        byte[] data = Fixtures.randomData(100_000, 1);
+
+        MappedDisc[] discs = Cluster.createDiscArray(directory, layout, data.length);
+        Cluster.saveData(data, discs, layout);
+        closeAll(discs);
+
+        assertEquals(layout.discSize(data.length), Files.size(Cluster.discFile(directory, 0)));
+        MappedDisc[] reopened = Cluster.openDiscArray(directory, 4);
+        assertArrayEquals(data, Cluster.readData(reopened, layout, data.length));
+        closeAll(reopened);
+    }
+
+    @Test
+    public void test_recover_truncated_disc() throws IOException {
+        StripeLayout layout = new StripeLayout(5, 1024);
+        byte[] data = Fixtures.randomData(50_000, 2);
+        MappedDisc[] discs = Cluster.createDiscArray(directory, layout, data.length);
+        Cluster.saveData(data, discs, layout);
+        byte[] original = new byte[(int) (discs[2].size() / 8)];
+        discs[2].readBytes(0, original, 0, original.length);
+
+        Cluster.simulateDamage(new Disc(2), discs, true);
+        byte[] damaged = new byte[original.length];
+        discs[2].readBytes(0, damaged, 0, damaged.length);
+        assertArrayEquals(new byte[original.length], damaged);
+
+        Cluster.recoverData(discs, 2, layout);
+        assertArrayEquals(data, Cluster.readData(discs, layout, data.length));
+        closeAll(discs);
+    }
+
+    @Test
+    public void test_recover_zeroed_disc() throws IOException {
+        StripeLayout layout = new StripeLayout(3, 512);
+        byte[] data = Fixtures.randomData(10_000, 3);
+        MappedDisc[] discs = Cluster.createDiscArray(directory, layout, data.length);
+        Cluster.saveData(data, discs, layout);
+
+        Cluster.simulateDamage(new Disc(0), discs, false);
+        byte[] damaged = new byte[(int) (discs[0].size() / 8)];
+        discs[0].readBytes(0, damaged, 0, damaged.length);
+        assertArrayEquals(new byte[damaged.length], damaged);
+        assertTrue(discs[0].isFailed());
+
+        Cluster.recoverData(discs, 0, layout);
+        assertArrayEquals(data, Cluster.readData(discs, layout, data.length));
+        closeAll(discs);
+    }
+
+    @Test
+    public void test_create_replaces_and_resizing_zeroes() throws IOException {
+        Path file = directory.resolve("disc.bin");
+        try (MappedDisc disc = MappedDisc.create(file, 4096)) {
+            disc.writeBytes(0, Fixtures.randomData(4096, 4), 0, 4096);
+        }
+
+        try (MappedDisc disc = MappedDisc.create(file, 1024)) {
+            assertEquals(1024, Files.size(file));
+            byte[] contents = new byte[1024];
+            disc.readBytes(0, contents, 0, contents.length);
+            assertArrayEquals(new byte[1024], contents);
+
+            disc.writeBytes(0, Fixtures.randomData(1024, 5), 0, 1024);
+            disc.setSize(512 * 8);
+            disc.setSize(1024 * 8);
+            disc.readBytes(0, contents, 0, contents.length);
+            assertArrayEquals(Arrays.copyOf(Fixtures.randomData(1024, 5), 512), Arrays.copyOf(contents, 512));
+            assertArrayEquals(new byte[512], Arrays.copyOfRange(contents, 512, 1024));
+        }
+    }
+
+    @Test
+    public void test_open_missing_disc_fails() throws IOException {
+        assertThrows(IOException.class, () -> Cluster.openDiscArray(directory, 3));
+    }
+}
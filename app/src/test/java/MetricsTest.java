@@ -0,0 +1,97 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.Metrics;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    @Test
+    public void test_counters_and_histogram() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        byte[] data = Fixtures.randomData(64 * 3 * 10, 1);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Metrics.reset();
+        Metrics.setEnabled(true);
+        try {
+            Cluster.saveData(data, discs, layout);
+            Cluster.read(discs, layout, 100, 200);
+            Cluster.simulateDamage(new Disc(1), discs, false);
+            Cluster.readData(discs, layout, data.length);
+            Cluster.recoverData(discs, 1, layout);
+        } finally {
+            Metrics.setEnabled(false);
+        }
+
+        assertEquals(1, Metrics.count(Metrics.Operation.SAVE));
+        assertEquals(data.length, Metrics.bytes(Metrics.Operation.SAVE));
+        assertEquals(10, Metrics.stripes(Metrics.Operation.SAVE));
+        assertEquals(2, Metrics.count(Metrics.Operation.READ));
+        assertEquals(200 + data.length, Metrics.bytes(Metrics.Operation.READ));
+        // Every data chunk of disc 1 is rebuilt while reading the damaged array
+        long chunksOnDisc1 = 0;
+        for (long stripe = 0; stripe < 10; stripe++) {
+            if (layout.parityDisc(stripe) != 1) {
+                chunksOnDisc1++;
+            }
+        }
+        assertEquals(chunksOnDisc1, Metrics.reconstructed(Metrics.Operation.READ));
+        assertEquals(1, Metrics.count(Metrics.Operation.REBUILD));
+        assertEquals(10 * 64, Metrics.bytes(Metrics.Operation.REBUILD));
+        assertEquals(1, Arrays.stream(Metrics.histogram(Metrics.Operation.REBUILD)).sum());
+        assertTrue(Metrics.percentileNanos(Metrics.Operation.REBUILD, 0.99) > 0);
+        assertTrue(Metrics.report().contains("REBUILD"));
+    }
+
+    @Test
+    public void test_nothing_recorded_while_disabled() {
+        Metrics.reset();
+        Disc disc = new Disc(3, "1011001110");
+        PackedDisc[] discs = Cluster.createDiscArray(disc);
+        Cluster.saveData(Cluster.toPackedDisc(disc), discs);
+        assertEquals(0, Metrics.count(Metrics.Operation.SAVE));
+        assertEquals(0, Metrics.count(Metrics.Operation.PARITY));
+    }
+
+    @Test
+    public void test_flight_recorder_events() throws IOException {
+        StripeLayout layout = new StripeLayout(3, 32);
+        byte[] data = Fixtures.randomData(1000, 2);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Path file = Files.createTempFile("raid5", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("pk.wieik.raidjavafx.ArrayOperation");
+                recording.start();
+                Cluster.saveData(data, discs, layout);
+                Cluster.recoverData(discs, 2, layout);
+                recording.stop();
+                recording.dump(file);
+            }
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent rebuild = events.stream()
+                    .filter(event -> event.getString("operation").equals("REBUILD"))
+                    .findFirst().orElseThrow();
+            assertEquals(2, rebuild.getInt("discIndex"));
+            assertEquals(layout.stripeCount(data.length), rebuild.getLong("stripes"));
+            assertFalse(rebuild.getDuration().isNegative());
+            assertTrue(events.stream().anyMatch(event -> event.getString("operation").equals("SAVE")
+                    && event.getLong("bytes") == data.length));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.DiscStore;
+import pk.wieik.raidjavafx.ParityScrubber;
+import pk.wieik.raidjavafx.RaidArray;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParityScrubberTest {
+
+    private static void corruptParity(RaidArray array, long stripe) {
+        StripeLayout layout = array.getLayout();
+        DiscStore parity = array.getDisc(layout.parityDisc(stripe));
+        byte[] chunk = new byte[layout.getChunkSize()];
+        long offset = stripe * layout.getChunkSize();
+        parity.readBytes(offset, chunk, 0, chunk.length);
+        chunk[chunk.length / 2] ^= 0x10;
+        parity.writeBytes(offset, chunk, 0, chunk.length);
+    }
+
+    @Test
+    public void test_reports_and_repairs_mismatches() {
+        StripeLayout layout = new StripeLayout(5, 32);
+        byte[] data = Fixtures.randomData(128 * 50, 1);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        corruptParity(array, 3);
+        corruptParity(array, 17);
+        corruptParity(array, 49);
+
+        ParityScrubber report = new ParityScrubber(array, 0, false);
+        assertEquals(3, report.scrub());
+        assertEquals(List.of(3L, 17L, 49L), report.getMismatches());
+        assertEquals(50, report.getStripesChecked());
+        assertEquals(0, report.getRepaired());
+        assertEquals(3, new ParityScrubber(array, 0, false).scrub());
+
+        ParityScrubber repair = new ParityScrubber(array, 0, true);
+        assertEquals(3, repair.scrub());
+        assertEquals(3, repair.getRepaired());
+        assertEquals(0, new ParityScrubber(array, 0, false).scrub());
+        assertArrayEquals(data, array.read(0, data.length));
+    }
+
+    @Test
+    public void test_skips_stripes_while_a_disc_is_failed() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        RaidArray array = RaidArray.create(layout, 96 * 10);
+        array.save(Fixtures.randomData(96 * 10, 2));
+        array.fail(2, false);
+
+        ParityScrubber scrubber = new ParityScrubber(array, 0, true);
+        assertEquals(0, scrubber.scrub());
+        assertEquals(10, scrubber.getStripesSkipped());
+        assertEquals(0, scrubber.getStripesChecked());
+    }
+
+    @Test
+    public void test_bandwidth_cap() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        RaidArray array = RaidArray.create(layout, 192 * 40);
+        array.save(Fixtures.randomData(192 * 40, 3));
+
+        // 40 stripes of 4 * 64 bytes at 50 KiB/s take 200 ms
+        long start = System.nanoTime();
+        new ParityScrubber(array, 51200, false).scrub();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis >= 150, "Scrub took only " + millis + " ms");
+    }
+
+    @Test
+    public void test_background_scrub_alongside_writers() throws Exception {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] expected = Fixtures.randomData(96 * 200, 4);
+        RaidArray array = RaidArray.create(layout, expected.length);
+        array.save(expected);
+
+        ParityScrubber scrubber = new ParityScrubber(array, 0, true, 5);
+        scrubber.start();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int owner = t;
+            Thread writer = new Thread(() -> {
+                Random random = new Random(owner);
+                for (int i = 0; i < 1000; i++) {
+                    int offset = random.nextInt(expected.length / 3) * 3 + owner;
+                    byte[] value = {(byte) random.nextInt()};
+                    array.write(offset, value);
+                    expected[offset] = value[0];
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        scrubber.join();
+
+        assertEquals(List.of(), scrubber.getMismatches());
+        assertEquals(200, scrubber.getStripesChecked());
+        assertArrayEquals(expected, array.read(0, expected.length));
+        assertEquals(0, new ParityScrubber(array, 0, false).scrub());
+    }
+}
@@ -0,0 +1,66 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartialWriteTest {
+
+    // Every disc must be recoverable from the others if parity is consistent
+    @Test
+    public void test_random_partial_writes() {
+        StripeLayout layout = new StripeLayout(5, 64);
+        byte[] expected = Fixtures.randomData(10_000, 1);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, expected.length);
+        Cluster.saveData(expected, discs, layout);
+
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            int offset = random.nextInt(expected.length);
+            byte[] update = Fixtures.randomData(random.nextInt(Math.min(700, expected.length - offset) + 1), i);
+            Cluster.write(discs, layout, offset, update);
+            System.arraycopy(update, 0, expected, offset, update.length);
+        }
+
+        assertArrayEquals(expected, Cluster.readData(discs, layout, expected.length));
+        Fixtures.assertParityConsistent(discs, layout);
+    }
+
+    @Test
+    public void test_full_stripe_write_reads_nothing() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        CountingDisc[] discs = CountingDisc.array(4, 10 * 64 * 8);
+        byte[] stripes = Fixtures.randomData((int) layout.getStripeSize() * 3, 3);
+
+        Cluster.write(discs, layout, layout.getStripeSize() * 2, stripes);
+
+        assertEquals(0, CountingDisc.reads(discs));
+        assertEquals(3 * 4, CountingDisc.writes(discs));
+        Fixtures.assertParityConsistent(discs, layout);
+    }
+
+    @Test
+    public void test_small_write_touches_one_data_disc_and_parity() {
+        StripeLayout layout = new StripeLayout(6, 128);
+        CountingDisc[] discs = CountingDisc.array(6, 20 * 128 * 8);
+        Cluster.write(discs, layout, 0, Fixtures.randomData((int) layout.getStripeSize() * 20, 4));
+        CountingDisc.reset(discs);
+
+        Cluster.write(discs, layout, 5000, Fixtures.randomData(16, 5));
+
+        // Old data and old parity are read, new data and new parity written
+        assertEquals(2, CountingDisc.reads(discs));
+        assertEquals(2, CountingDisc.writes(discs));
+        Fixtures.assertParityConsistent(discs, layout);
+    }
+
+    @Test
+    public void test_write_past_capacity_fails() {
+        StripeLayout layout = new StripeLayout(3, 64);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, 128);
+        assertThrows(IndexOutOfBoundsException.class, () -> Cluster.write(discs, layout, 100, new byte[29]));
+    }
+}
@@ -0,0 +1,80 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.PackedDisc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgressTest {
+
+    private static PackedDisc randomBits(long length, long seed) {
+        Random random = new Random(seed);
+        PackedDisc bits = new PackedDisc(length);
+        for (long i = 0; i < length; i++) {
+            bits.setBit(i, random.nextBoolean());
+        }
+        return bits;
+    }
+
+    private static void assertIncreasingToTotal(List<long[]> reports) {
+        assertTrue(reports.size() > 2, "Only " + reports.size() + " reports");
+        long total = reports.get(0)[1];
+        long last = 0;
+        for (long[] report : reports) {
+            assertEquals(total, report[1]);
+            assertTrue(report[0] >= last, report[0] + " after " + last);
+            last = report[0];
+        }
+        assertEquals(total, last);
+    }
+
+    @Test
+    public void test_save_read_and_recover_report_progress() {
+        long length = 3_000_000;
+        PackedDisc data = randomBits(length, 1);
+        PackedDisc[] discs = Cluster.createDiscArray(new Disc(4, "10"));
+
+        List<long[]> saved = new ArrayList<>();
+        Cluster.saveData(data, discs, (done, total) -> saved.add(new long[]{done, total}));
+        assertIncreasingToTotal(saved);
+        assertEquals(2 * discs[0].size(), saved.get(0)[1]);
+
+        Cluster.simulateDamage(new Disc(2), discs);
+        List<long[]> recovered = new ArrayList<>();
+        Cluster.recoverData(discs, 2, length, (done, total) -> recovered.add(new long[]{done, total}));
+        assertIncreasingToTotal(recovered);
+        assertFalse(discs[2].isFailed());
+
+        List<long[]> read = new ArrayList<>();
+        assertEquals(data.toString(), Cluster.readData(discs, length, (done, total) -> read.add(new long[]{done, total})).toString());
+        assertIncreasingToTotal(read);
+        assertEquals(length, read.get(0)[1]);
+    }
+
+    @Test
+    public void test_cancelled_recovery_leaves_disc_failed() {
+        long length = 1_500_000;
+        PackedDisc data = randomBits(length, 2);
+        PackedDisc[] discs = Cluster.createDiscArray(new Disc(3, "10"));
+        Cluster.saveData(data, discs);
+        String expected = discs[1].toString();
+
+        Cluster.simulateDamage(new Disc(1), discs);
+        assertThrows(CancellationException.class, () -> Cluster.recoverData(discs, 1, length, (done, total) -> {
+            if (done > total / 4) {
+                throw new CancellationException();
+            }
+        }));
+        assertTrue(discs[1].isFailed());
+        assertEquals(data.toString(), Cluster.readData(discs, length).toString());
+
+        Cluster.recoverData(discs, 1, length);
+        assertFalse(discs[1].isFailed());
+        assertEquals(expected, discs[1].toString());
+    }
+}
@@ -0,0 +1,138 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.RaidArray;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RaidArrayTest {
+
+    private static void runAll(int threads, List<Runnable> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_parallel_writers_on_disjoint_regions() throws Exception {
+        StripeLayout layout = new StripeLayout(5, 32);
+        RaidArray array = RaidArray.create(layout, 128 * 64);
+        byte[] expected = new byte[(int) array.capacity()];
+        int region = expected.length / 8;
+
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int start = t * region;
+            long seed = t;
+            tasks.add(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 300; i++) {
+                    int offset = start + random.nextInt(region);
+                    byte[] update = Fixtures.randomData(random.nextInt(start + region - offset) + 1, random.nextLong());
+                    array.write(offset, update);
+                    synchronized (expected) {
+                        System.arraycopy(update, 0, expected, offset, update.length);
+                    }
+                    array.read(start, region);
+                }
+            });
+        }
+        runAll(8, tasks);
+
+        assertArrayEquals(expected, array.read(0, expected.length));
+        Fixtures.assertParityConsistent(array);
+    }
+
+    @Test
+    public void test_parallel_writers_sharing_stripes_keep_parity_consistent() throws Exception {
+        StripeLayout layout = new StripeLayout(4, 64);
+        RaidArray array = RaidArray.create(layout, 192 * 4);
+        byte[] expected = new byte[(int) array.capacity()];
+
+        // Every thread owns every fourth byte, so all threads hit the same stripes
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int owner = t;
+            tasks.add(() -> {
+                Random random = new Random(owner);
+                for (int i = 0; i < 2000; i++) {
+                    int offset = random.nextInt(expected.length / 4) * 4 + owner;
+                    byte[] value = {(byte) random.nextInt()};
+                    array.write(offset, value);
+                    expected[offset] = value[0];
+                }
+            });
+        }
+        runAll(4, tasks);
+
+        assertArrayEquals(expected, array.read(0, expected.length));
+        Fixtures.assertParityConsistent(array);
+    }
+
+    @Test
+    public void test_reads_during_rebuild() throws Exception {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(96 * 500, 1);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        array.fail(1, false);
+
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> array.rebuild(1));
+        for (int t = 0; t < 3; t++) {
+            long seed = t;
+            tasks.add(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 500; i++) {
+                    int offset = random.nextInt(data.length - 100);
+                    assertArrayEquals(Arrays.copyOfRange(data, offset, offset + 100), array.read(offset, 100));
+                }
+            });
+        }
+        runAll(4, tasks);
+
+        assertEquals(-1, array.failedDisc());
+        assertArrayEquals(data, array.read(0, data.length));
+        Fixtures.assertParityConsistent(array);
+    }
+
+    @Test
+    public void test_arrays_with_different_disc_counts_coexist() {
+        Disc three = new Disc(3, "1011001");
+        Disc seven = new Disc(7, "1110001011");
+        PackedDisc[] small = Cluster.createDiscArray(three);
+        PackedDisc[] large = Cluster.createDiscArray(seven);
+        Cluster.saveData(Cluster.toPackedDisc(three), small);
+        Cluster.saveData(Cluster.toPackedDisc(seven), large);
+
+        assertEquals(3, small.length);
+        assertEquals(7, large.length);
+        assertEquals("1011001", Cluster.readData(small, 7).toString());
+        assertEquals("1110001011", Cluster.readData(large, 10).toString());
+    }
+
+    @Test
+    public void test_layout_must_match_discs() {
+        PackedDisc[] discs = Cluster.createDiscArray(new StripeLayout(4, 32), 1000);
+        assertThrows(IllegalArgumentException.class, () -> new RaidArray(discs, new StripeLayout(5, 32)));
+    }
+}
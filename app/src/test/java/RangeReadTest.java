@@ -0,0 +1,83 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RangeReadTest {
+
+    @Test
+    public void test_read_random_ranges() {
+        StripeLayout layout = new StripeLayout(5, 32);
+        byte[] data = Fixtures.randomData(32 * 4 * 20, 1);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            int offset = random.nextInt(data.length);
+            int length = random.nextInt(data.length - offset + 1);
+            assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length),
+                    Cluster.read(discs, layout, offset, length));
+        }
+    }
+
+    @Test
+    public void test_read_touches_only_overlapping_chunks() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        CountingDisc[] discs = CountingDisc.array(4, 1000 * 64 * 8);
+        byte[] data = Fixtures.randomData((int) Cluster.capacity(discs, layout), 3);
+        Cluster.write(discs, layout, 0, data);
+        CountingDisc.reset(discs);
+
+        // Ends of two neighbouring chunks deep into the array
+        long offset = 900 * layout.getStripeSize() + 60;
+        assertArrayEquals(Arrays.copyOfRange(data, (int) offset, (int) offset + 8), Cluster.read(discs, layout, offset, 8));
+        assertEquals(2, CountingDisc.reads(discs));
+        assertEquals(0, CountingDisc.writes(discs));
+    }
+
+    @Test
+    public void test_degraded_range_read() {
+        StripeLayout layout = new StripeLayout(3, 16);
+        byte[] data = Fixtures.randomData(1000, 4);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+        Cluster.simulateDamage(new Disc(1), discs, false);
+
+        for (int offset = 0; offset < data.length; offset += 37) {
+            int length = Math.min(50, data.length - offset);
+            assertArrayEquals(Arrays.copyOfRange(data, offset, offset + length),
+                    Cluster.read(discs, layout, offset, length));
+        }
+    }
+
+    @Test
+    public void test_packed_range_read() {
+        String inputData = "1110101100111010001011110000101010111100101010110011";
+        Disc disc = new Disc(4, inputData);
+        PackedDisc[] discs = Cluster.createDiscArray(disc);
+        Cluster.saveData(Cluster.toPackedDisc(disc), discs);
+
+        for (int offset = 0; offset < inputData.length(); offset++) {
+            for (int end = offset; end <= inputData.length(); end += 7) {
+                assertEquals(inputData.substring(offset, end), Cluster.read(discs, offset, end - offset).toString());
+            }
+        }
+        Cluster.simulateDamage(new Disc(2), discs);
+        assertEquals(inputData.substring(10, 40), Cluster.read(discs, 10, 30).toString());
+    }
+
+    @Test
+    public void test_read_out_of_bounds() {
+        StripeLayout layout = new StripeLayout(3, 16);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, 64);
+        assertThrows(IndexOutOfBoundsException.class, () -> Cluster.read(discs, layout, 60, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> Cluster.read(discs, layout, -1, 1));
+    }
+}
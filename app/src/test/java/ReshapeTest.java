@@ -0,0 +1,290 @@
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.ArrayCli;
+import pk.wieik.raidjavafx.ArrayMetadata;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.DiscStore;
+import pk.wieik.raidjavafx.MappedDisc;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.ParityScrubber;
+import pk.wieik.raidjavafx.RaidArray;
+import pk.wieik.raidjavafx.ReshapeJournal;
+import pk.wieik.raidjavafx.Snapshot;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReshapeTest {
+
+    private Path dir;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("raid5");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+        Fixtures.deleteRecursively(dir);
+    }
+
+    @Test
+    public void test_grow_while_in_use() throws Exception {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] expected = Fixtures.randomData(96 * 3000, 1);
+        RaidArray array = RaidArray.create(layout, expected.length);
+        array.save(expected);
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int owner = t;
+            Thread writer = new Thread(() -> {
+                Random random = new Random(owner);
+                for (int i = 0; i < 3000; i++) {
+                    int offset = random.nextInt(expected.length / 3) * 3 + owner;
+                    byte[] value = {(byte) random.nextInt()};
+                    array.write(offset, value);
+                    expected[offset] = value[0];
+                    array.read(random.nextInt(expected.length - 200), 200);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        array.startReshape(new PackedDisc(), null);
+        assertTrue(array.isReshaping());
+        assertEquals(expected.length, array.capacity());
+        array.continueReshape();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertFalse(array.isReshaping());
+        assertEquals(5, array.getNumberOfDiscs());
+        assertEquals(5, array.getLayout().getNumberOfDiscs());
+        assertEquals(3000 * 128, array.capacity());
+        assertArrayEquals(expected, array.read(0, expected.length));
+        assertArrayEquals(new byte[3000 * 32], array.read(expected.length, 3000 * 32));
+        assertEquals(0, new ParityScrubber(array, 0, false).scrub());
+
+        array.write(array.capacity() - 10, Fixtures.randomData(10, 2));
+        assertArrayEquals(Fixtures.randomData(10, 2), array.read(array.capacity() - 10, 10));
+    }
+
+    @Test
+    public void test_interrupted_reshape_resumes_from_journal() throws IOException {
+        Path file = dir.resolve("reshape.journal");
+        StripeLayout layout = new StripeLayout(3, 64);
+        byte[] data = Fixtures.randomData(128 * 4000, 3);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+
+        long[] reached = new long[1];
+        try (ReshapeJournal journal = ReshapeJournal.open(file)) {
+            array.startReshape(new PackedDisc(), journal);
+            assertThrows(CancellationException.class, () -> array.continueReshape((done, total) -> {
+                reached[0] = done;
+                if (done > 1000) {
+                    throw new CancellationException();
+                }
+            }));
+            assertTrue(array.isReshaping());
+            assertEquals(reached[0], journal.getCheckpoint());
+            // Served half from the new layout and half from the old one
+            assertArrayEquals(data, array.read(0, data.length));
+        }
+
+        // A crash halfway through the next batch: the added disc is the only one whose rows past
+        // the checkpoint hold nothing of the old layout
+        DiscStore[] discs = Fixtures.discsOf(array);
+        long torn = reached[0] * 64;
+        discs[3].writeBytes(torn, Fixtures.randomData(64 * 20, 4), 0, 64 * 20);
+
+        try (ReshapeJournal journal = ReshapeJournal.open(file)) {
+            assertTrue(journal.isActive());
+            assertEquals(3, journal.getOldLayout().getNumberOfDiscs());
+            RaidArray resumed = RaidArray.resumeReshape(discs, journal);
+            assertTrue(resumed.isReshaping());
+            assertArrayEquals(data, resumed.read(0, data.length));
+            resumed.continueReshape();
+            assertFalse(journal.isActive());
+            assertArrayEquals(data, resumed.read(0, data.length));
+            assertEquals(0, new ParityScrubber(resumed, 0, false).scrub());
+        }
+        try (ReshapeJournal journal = ReshapeJournal.open(file)) {
+            assertFalse(journal.isActive());
+        }
+    }
+
+    @Test
+    public void test_crash_while_writing_first_stripes_is_repaired_from_backup() throws IOException {
+        Path file = dir.resolve("reshape.journal");
+        StripeLayout layout = new StripeLayout(5, 32);
+        byte[] data = Fixtures.randomData(128 * 500, 7);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        try (ReshapeJournal journal = ReshapeJournal.open(file)) {
+            array.startReshape(new PackedDisc(), journal);
+            assertEquals(4, journal.getCheckpoint());
+        }
+
+        // Back to the moment the first 4 rows were half overwritten: checkpoint 0, rows garbage
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8), 16);
+        }
+        DiscStore[] discs = Fixtures.discsOf(array);
+        for (int i = 0; i < discs.length; i++) {
+            discs[i].writeBytes(0, Fixtures.randomData(32 * 4, 10 + i), 0, 32 * 4);
+        }
+
+        try (ReshapeJournal journal = ReshapeJournal.open(file)) {
+            assertEquals(0, journal.getCheckpoint());
+            RaidArray resumed = RaidArray.resumeReshape(discs, journal);
+            assertEquals(4, journal.getCheckpoint());
+            resumed.continueReshape();
+            assertArrayEquals(data, resumed.read(0, data.length));
+            assertEquals(0, new ParityScrubber(resumed, 0, false).scrub());
+        }
+    }
+
+    @Test
+    public void test_batch_leaves_other_stripes_usable() throws Exception {
+        StripeLayout layout = new StripeLayout(4, 4096);
+        byte[] data = Fixtures.randomData(3 * 4096 * 400, 7);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+
+        // Holds the first batch after its stripes are written, with its locks still taken
+        CountDownLatch forcing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean armed = new AtomicBoolean();
+        PackedDisc added = new PackedDisc() {
+            @Override
+            public void force() {
+                if (armed.getAndSet(false)) {
+                    forcing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        array.startReshape(added, null);
+        armed.set(true);
+        Thread reshaper = new Thread(array::continueReshape);
+        reshaper.start();
+        assertTrue(forcing.await(10, TimeUnit.SECONDS));
+
+        // The last stripe is far from the rows the batch moves
+        byte[] value = Fixtures.randomData(100, 8);
+        int offset = data.length - value.length;
+        CompletableFuture.runAsync(() -> array.write(offset, value)).get(10, TimeUnit.SECONDS);
+        System.arraycopy(value, 0, data, offset, value.length);
+
+        release.countDown();
+        reshaper.join();
+        assertFalse(array.isReshaping());
+        assertArrayEquals(data, array.read(0, data.length));
+        assertEquals(0, new ParityScrubber(array, 0, false).scrub());
+    }
+
+    @Test
+    public void test_array_operations_during_reshape() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(96 * 2000, 5);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        array.enableChecksums();
+
+        Snapshot snapshot = array.snapshot();
+        assertThrows(IllegalStateException.class, () -> array.startReshape(new PackedDisc(), null));
+        snapshot.close();
+
+        array.startReshape(new PackedDisc(), null);
+        assertThrows(IllegalStateException.class, () -> array.startReshape(new PackedDisc(), null));
+        assertThrows(IllegalStateException.class, () -> array.save(data));
+        assertThrows(IllegalStateException.class, array::snapshot);
+        assertThrows(IllegalStateException.class, array::enableChecksums);
+        assertNull(array.getChecksums());
+
+        // A failed disc stops the reshape until it is rebuilt, in both layouts
+        array.fail(1, true);
+        assertThrows(IllegalStateException.class, array::continueReshape);
+        assertArrayEquals(data, array.read(0, data.length));
+        array.replaceDisc(1, new PackedDisc());
+        array.rebuild(1);
+        array.continueReshape();
+
+        assertArrayEquals(data, array.read(0, data.length));
+        assertNotNull(array.getChecksums());
+        assertEquals(0, new ParityScrubber(array, 0, false).scrub());
+    }
+
+    @Test
+    public void test_cli_grow_resumes_interrupted_reshape() throws IOException {
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true);
+        ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+        PrintStream err = new PrintStream(errBytes, true);
+        ByteArrayOutputStream readBytes = new ByteArrayOutputStream();
+        byte[] data = Fixtures.randomData(300_000, 6);
+
+        assertEquals(0, ArrayCli.run(new String[]{"create", dir.toString(), "--discs", "4", "--chunk-size", "64"},
+                new ByteArrayInputStream(new byte[0]), out, err));
+        assertEquals(0, ArrayCli.run(new String[]{"write", dir.toString()}, new ByteArrayInputStream(data), out, err));
+
+        // Starts a reshape the way grow does and stops it halfway
+        MappedDisc[] discs = Cluster.openDiscArray(dir, 4);
+        MappedDisc added = MappedDisc.create(Cluster.discFile(dir, 4), 0);
+        try (ReshapeJournal journal = ReshapeJournal.open(ReshapeJournal.file(dir))) {
+            RaidArray array = new RaidArray(discs, new StripeLayout(4, 64));
+            array.startReshape(added, journal);
+            assertThrows(CancellationException.class, () -> array.continueReshape((done, total) -> {
+                throw new CancellationException();
+            }));
+        } finally {
+            for (MappedDisc disc : discs) {
+                disc.close();
+            }
+            added.close();
+        }
+
+        assertEquals(1, ArrayCli.run(new String[]{"read", dir.toString()}, new ByteArrayInputStream(new byte[0]), out, err));
+        errBytes.reset();
+        assertEquals(0, ArrayCli.run(new String[]{"grow", dir.toString()}, new ByteArrayInputStream(new byte[0]), out, err));
+        assertTrue(errBytes.toString().contains("Resuming the reshape"), errBytes.toString());
+        assertEquals(5, ArrayMetadata.load(dir).getNumberOfDiscs());
+        assertEquals(0, ArrayCli.run(new String[]{"read", dir.toString()},
+                new ByteArrayInputStream(new byte[0]), new PrintStream(readBytes, true), err));
+        assertArrayEquals(data, readBytes.toByteArray());
+        assertEquals(0, ArrayCli.run(new String[]{"verify", dir.toString()}, new ByteArrayInputStream(new byte[0]), out, err));
+
+        // And once more from scratch
+        assertEquals(0, ArrayCli.run(new String[]{"grow", dir.toString()}, new ByteArrayInputStream(new byte[0]), out, err));
+        assertEquals(6, ArrayMetadata.load(dir).getNumberOfDiscs());
+        readBytes.reset();
+        assertEquals(0, ArrayCli.run(new String[]{"read", dir.toString()},
+                new ByteArrayInputStream(new byte[0]), new PrintStream(readBytes, true), err));
+        assertArrayEquals(data, readBytes.toByteArray());
+    }
+}
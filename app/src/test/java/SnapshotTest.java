@@ -0,0 +1,115 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.RaidArray;
+import pk.wieik.raidjavafx.Snapshot;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotTest {
+
+    @Test
+    public void test_snapshot_keeps_old_contents_and_copies_only_written_stripes() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(96 * 1000, 1);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+
+        Snapshot snapshot = array.snapshot();
+        assertEquals(0, snapshot.getPreservedStripes());
+        assertEquals(data.length, snapshot.capacity());
+
+        byte[] update = Fixtures.randomData(200, 2);
+        array.write(96 * 10 + 50, update);
+        array.write(96 * 10, new byte[]{1, 2, 3});
+        array.write(96 * 700, new byte[]{4});
+        assertEquals(4, snapshot.getPreservedStripes());
+        assertEquals(4 * 96, snapshot.getPreservedBytes());
+
+        assertArrayEquals(data, snapshot.read(0, data.length));
+        assertArrayEquals(Arrays.copyOfRange(data, 96 * 10, 96 * 13), snapshot.read(96 * 10, 96 * 3));
+        assertArrayEquals(update, array.read(96 * 10 + 50, update.length));
+
+        // Taken later, so it sees the writes and does not share the first snapshot's copies
+        byte[] current = array.read(0, data.length);
+        Snapshot later = array.snapshot();
+        array.write(96 * 10, new byte[]{9});
+        assertEquals(4, snapshot.getPreservedStripes());
+        assertEquals(1, later.getPreservedStripes());
+        assertArrayEquals(current, later.read(0, data.length));
+        assertArrayEquals(data, snapshot.read(0, data.length));
+        assertEquals(2, array.getSnapshotCount());
+    }
+
+    @Test
+    public void test_closed_snapshot_is_no_longer_copied() {
+        StripeLayout layout = new StripeLayout(5, 64);
+        byte[] data = Fixtures.randomData(256 * 50, 3);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+
+        Snapshot snapshot = array.snapshot();
+        array.write(0, new byte[]{1});
+        snapshot.close();
+        assertEquals(0, array.getSnapshotCount());
+        assertEquals(0, snapshot.getPreservedStripes());
+        array.write(256 * 10, new byte[]{1});
+        assertEquals(0, snapshot.getPreservedStripes());
+        assertThrows(IllegalStateException.class, () -> snapshot.read(0, 1));
+    }
+
+    @Test
+    public void test_snapshot_survives_save_and_disc_failure() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(96 * 100, 4);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+
+        try (Snapshot snapshot = array.snapshot()) {
+            array.fail(1, true);
+            assertArrayEquals(data, snapshot.read(0, data.length));
+
+            byte[] replacement = Fixtures.randomData(96 * 40, 5);
+            array.save(replacement);
+            assertEquals(100, snapshot.getPreservedStripes());
+            assertArrayEquals(replacement, array.read(0, replacement.length));
+            assertArrayEquals(data, snapshot.read(0, data.length));
+            assertThrows(IndexOutOfBoundsException.class, () -> snapshot.read(data.length - 1, 2));
+        }
+    }
+
+    @Test
+    public void test_snapshot_is_stable_under_concurrent_writes() throws Exception {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(96 * 2000, 6);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+        Snapshot snapshot = array.snapshot();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int seed = t;
+            Thread writer = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 3000; i++) {
+                    array.write(random.nextInt(data.length - 10), Fixtures.randomData(10, i));
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (int i = 0; i < 20; i++) {
+            int offset = i * 9000;
+            assertArrayEquals(Arrays.copyOfRange(data, offset, offset + 500), snapshot.read(offset, 500));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertArrayEquals(data, snapshot.read(0, data.length));
+        assertTrue(snapshot.getPreservedStripes() <= 2000);
+    }
+}
@@ -0,0 +1,144 @@
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.MappedDisc;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingTest {
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("raid5");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+        Fixtures.deleteRecursively(directory);
+    }
+
+    // Hands out at most 7 bytes per read, like a slow pipe
+    private static ReadableByteChannel trickle(byte[] data) {
+        return new ReadableByteChannel() {
+            private int position;
+
+            @Override
+            public int read(ByteBuffer dst) {
+                if (position == data.length) {
+                    return -1;
+                }
+                int count = Math.min(Math.min(7, dst.remaining()), data.length - position);
+                dst.put(data, position, count);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Test
+    public void test_stream_matches_in_memory_save() throws IOException {
+        StripeLayout layout = new StripeLayout(4, 256);
+        byte[] data = Fixtures.randomData(100_000, 1);
+        PackedDisc[] expected = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, expected, layout);
+
+        PackedDisc[] discs = Cluster.createDiscArray(layout, 0);
+        long saved = Cluster.saveData(new ByteArrayInputStream(data), discs, layout);
+
+        assertEquals(data.length, saved);
+        for (int i = 0; i < discs.length; i++) {
+            assertEquals(expected[i].toString(), discs[i].toString());
+        }
+    }
+
+    @Test
+    public void test_short_reads_fill_whole_stripes() throws IOException {
+        StripeLayout layout = new StripeLayout(3, 64);
+        byte[] data = Fixtures.randomData(5_000, 2);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, 0);
+
+        assertEquals(data.length, Cluster.saveData(trickle(data), discs, layout));
+        assertArrayEquals(data, Cluster.readData(discs, layout, data.length));
+    }
+
+    @Test
+    public void test_stream_into_file_backed_discs() throws IOException {
+        StripeLayout layout = new StripeLayout(5, 4096);
+        byte[] data = Fixtures.randomData(300_001, 3);
+        MappedDisc[] discs = Cluster.createDiscArray(directory, layout, 0);
+
+        Cluster.saveData(new ByteArrayInputStream(data), discs, layout);
+
+        assertEquals(layout.discSize(data.length), Files.size(Cluster.discFile(directory, 4)));
+        assertArrayEquals(data, Cluster.readData(discs, layout, data.length));
+        for (MappedDisc disc : discs) {
+            disc.close();
+        }
+    }
+
+    @Test
+    public void test_read_out_to_stream() throws IOException {
+        StripeLayout layout = new StripeLayout(5, 128);
+        byte[] data = Fixtures.randomData(77_777, 4);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(data.length, Cluster.readData(discs, layout, data.length, out));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void test_read_out_from_file_backed_discs() throws IOException {
+        StripeLayout layout = new StripeLayout(4, 8192);
+        byte[] data = Fixtures.randomData(250_000, 5);
+        MappedDisc[] discs = Cluster.createDiscArray(directory, layout, data.length);
+        Cluster.saveData(data, discs, layout);
+
+        Path output = directory.resolve("out.bin");
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            Cluster.readData(discs, layout, data.length, out);
+        }
+        assertArrayEquals(data, Files.readAllBytes(output));
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Cluster.readData(discs, layout, 1000, stream);
+        assertArrayEquals(Arrays.copyOf(data, 1000), stream.toByteArray());
+        for (MappedDisc disc : discs) {
+            disc.close();
+        }
+    }
+
+    @Test
+    public void test_empty_stream() throws IOException {
+        StripeLayout layout = new StripeLayout(3, 64);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, 1000);
+        assertEquals(0, Cluster.saveData(new ByteArrayInputStream(new byte[0]), discs, layout));
+        assertEquals(0, discs[0].size());
+    }
+}
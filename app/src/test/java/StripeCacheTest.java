@@ -0,0 +1,104 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeCache;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripeCacheTest {
+
+    @Test
+    public void test_small_sequential_writes_become_full_stripe_writes() {
+        StripeLayout layout = new StripeLayout(4, 64);
+        CountingDisc[] discs = CountingDisc.array(4, 10 * 64 * 8);
+        StripeCache cache = new StripeCache(discs, layout, 8);
+        byte[] data = Fixtures.randomData((int) layout.getStripeSize() * 3, 1);
+
+        for (int offset = 0; offset < data.length; offset += 16) {
+            cache.write(offset, data, offset, 16);
+        }
+        assertEquals(0, CountingDisc.writes(discs));
+        cache.flush();
+
+        assertEquals(0, CountingDisc.reads(discs));
+        assertEquals(3 * 4, CountingDisc.writes(discs));
+        assertEquals(3, cache.getFullStripeWrites());
+        assertArrayEquals(data, Cluster.read(discs, layout, 0, data.length));
+        Fixtures.assertParityConsistent(discs, layout);
+    }
+
+    @Test
+    public void test_hot_stripes_are_read_from_memory() {
+        StripeLayout layout = new StripeLayout(5, 32);
+        byte[] data = Fixtures.randomData(5000, 2);
+        CountingDisc[] discs = CountingDisc.array(5, layout.discSize(data.length) * 8);
+        Cluster.write(discs, layout, 0, Arrays.copyOf(data, (int) Cluster.capacity(discs, layout)));
+        StripeCache cache = new StripeCache(discs, layout, 4);
+        CountingDisc.reset(discs);
+
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 1100), cache.read(1000, 100));
+        int reads = CountingDisc.reads(discs);
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(Arrays.copyOfRange(data, 1000, 1100), cache.read(1000, 100));
+        }
+        assertEquals(reads, CountingDisc.reads(discs));
+        assertEquals(10 * cache.getMisses(), cache.getHits());
+    }
+
+    @Test
+    public void test_least_recently_used_stripe_is_evicted() {
+        StripeLayout layout = new StripeLayout(3, 16);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, 32 * 10);
+        StripeCache cache = new StripeCache(discs, layout, 2);
+
+        cache.write(0, new byte[]{1});
+        cache.write(32, new byte[]{2});
+        cache.read(0, 1);
+        // Stripe 1 is the least recently used and goes to the disks
+        cache.write(64, new byte[]{3});
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getPartialWrites());
+        assertArrayEquals(new byte[]{0}, Cluster.read(discs, layout, 0, 1));
+        assertArrayEquals(new byte[]{2}, Cluster.read(discs, layout, 32, 1));
+        assertArrayEquals(new byte[]{1}, cache.read(0, 1));
+    }
+
+    @Test
+    public void test_random_workload_matches_direct_writes() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] expected = Fixtures.randomData(96 * 40, 3);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, expected.length);
+        Cluster.saveData(expected, discs, layout);
+        StripeCache cache = new StripeCache(discs, layout, 5);
+
+        Random random = new Random(4);
+        for (int i = 0; i < 500; i++) {
+            int offset = random.nextInt(expected.length);
+            int length = random.nextInt(Math.min(200, expected.length - offset) + 1);
+            if (random.nextBoolean()) {
+                byte[] update = Fixtures.randomData(length, i);
+                cache.write(offset, update);
+                System.arraycopy(update, 0, expected, offset, length);
+            } else {
+                assertArrayEquals(Arrays.copyOfRange(expected, offset, offset + length), cache.read(offset, length));
+            }
+        }
+        cache.flush();
+
+        assertArrayEquals(expected, Cluster.readData(discs, layout, expected.length));
+        Fixtures.assertParityConsistent(discs, layout);
+    }
+
+    @Test
+    public void test_rejects_empty_cache() {
+        StripeLayout layout = new StripeLayout(3, 16);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, 64);
+        assertThrows(IllegalArgumentException.class, () -> new StripeCache(discs, layout, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> new StripeCache(discs, layout).write(60, new byte[8]));
+    }
+}
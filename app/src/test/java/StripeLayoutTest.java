@@ -0,0 +1,149 @@
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripeLayoutTest {
+
+    @Test
+    public void test_save_and_read_striped_data() {
+        StripeLayout layout = new StripeLayout(5, 64);
+        // Not a multiple of the stripe size, so the last stripe is padded
+        byte[] data = Fixtures.randomData(64 * 4 * 7 + 13, 1);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+
+        Cluster.saveData(data, discs, layout);
+
+        assertEquals(8 * 64 * 8, discs[0].size());
+        assertArrayEquals(data, Cluster.readData(discs, layout, data.length));
+    }
+
+    @Test
+    public void test_chunks_are_contiguous_and_parity_rotates_per_stripe() {
+        StripeLayout layout = new StripeLayout(3, 16);
+        byte[] data = Fixtures.randomData(16 * 2 * 3, 2);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+
+        byte[] chunk = new byte[16];
+        // Stripe 0: parity on disc 2, data on discs 0 and 1
+        discs[0].readBytes(0, chunk, 0, 16);
+        assertArrayEquals(Arrays.copyOfRange(data, 0, 16), chunk);
+        discs[1].readBytes(0, chunk, 0, 16);
+        assertArrayEquals(Arrays.copyOfRange(data, 16, 32), chunk);
+        // Stripe 1: parity on disc 1, data on discs 0 and 2
+        discs[2].readBytes(16, chunk, 0, 16);
+        assertArrayEquals(Arrays.copyOfRange(data, 48, 64), chunk);
+        // Stripe 2: parity on disc 0
+        discs[0].readBytes(32, chunk, 0, 16);
+        for (int i = 0; i < 16; i++) {
+            assertEquals((byte) (data[64 + i] ^ data[80 + i]), chunk[i]);
+        }
+        assertEquals(2, layout.rotationAt(0).skipIndex);
+        assertEquals(1, layout.rotationAt(1).skipIndex);
+        assertEquals(0, layout.rotationAt(2).skipIndex);
+        assertEquals(1, layout.rotationAt(3).skipIndex);
+    }
+
+    @Test
+    public void test_sum_control_restores_parity() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(1000, 3);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+        String parityDisc = discs[3].toString();
+
+        discs[3].writeBytes(0, new byte[32], 0, 32);
+        Cluster.sumControl(discs, layout);
+
+        assertEquals(parityDisc, discs[3].toString());
+    }
+
+    @Test
+    public void test_recover_striped_disc() {
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(5000, 4);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+
+        for (int damaged = 0; damaged < discs.length; damaged++) {
+            String expected = discs[damaged].toString();
+            discs[damaged] = new PackedDisc(discs[damaged].size());
+            assertEquals(expected, Cluster.recoverData(discs, damaged, layout).toString());
+        }
+        assertArrayEquals(data, Cluster.readData(discs, layout, data.length));
+    }
+
+    @Test
+    public void test_parallel_parity_and_recovery() {
+        StripeLayout layout = new StripeLayout(6, 64);
+        byte[] data = Fixtures.randomData(1_000_000, 5);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+        String[] expected = new String[discs.length];
+        for (int i = 0; i < discs.length; i++) {
+            expected[i] = discs[i].toString();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        discs[2].zero();
+        Cluster.recoverData(discs, 2, layout, pool);
+        discs[5].zero();
+        Cluster.recoverData(discs, 5, layout, pool);
+        Cluster.sumControl(discs, layout, pool);
+        for (int i = 0; i < discs.length; i++) {
+            assertEquals(expected[i], discs[i].toString());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void test_parity_disc_matches_stepped_rotation() {
+        for (int numberOfDiscs = 3; numberOfDiscs <= 9; numberOfDiscs++) {
+            StripeLayout layout = new StripeLayout(numberOfDiscs, 8);
+            Cluster.Result stepped = new Cluster.Result(numberOfDiscs - 1, true);
+            for (long stripe = 0; stripe < 1000; stripe++) {
+                assertEquals(stepped.skipIndex, StripeLayout.parityDisc(stripe, numberOfDiscs));
+                assertEquals(stepped.skipIndex, layout.parityDisc(stripe));
+                assertEquals(stepped.skipIndex, layout.rotationAt(stripe).skipIndex);
+                assertEquals(stepped.decrementing, layout.rotationAt(stripe).decrementing, "Stripe " + stripe);
+                stepped = Cluster.adjustSkipIndex(stepped.skipIndex, numberOfDiscs, stepped.decrementing);
+            }
+            // Far stripes are looked up directly, without walking from the first one
+            long far = 123_456_789_012L;
+            assertEquals(StripeLayout.parityDisc(far % (2 * (numberOfDiscs - 1)), numberOfDiscs), layout.parityDisc(far));
+        }
+    }
+
+    @Test
+    public void test_logical_offsets_map_to_disc_bytes() {
+        StripeLayout layout = new StripeLayout(5, 16);
+        byte[] data = Fixtures.randomData(16 * 4 * 9 + 5, 6);
+        PackedDisc[] discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+
+        byte[] stored = new byte[1];
+        for (int offset = 0; offset < data.length; offset++) {
+            int disc = layout.discOf(offset);
+            assertNotEquals(layout.parityDisc(layout.stripeOf(offset)), disc);
+            discs[disc].readBytes(layout.discOffsetOf(offset), stored, 0, 1);
+            assertEquals(data[offset], stored[0]);
+        }
+    }
+
+    @Test
+    public void test_rejects_unaligned_chunk_size() {
+        assertThrows(IllegalArgumentException.class, () -> new StripeLayout(4, 12));
+    }
+
+    @Test
+    public void test_rejects_fewer_than_three_discs() {
+        assertThrows(IllegalArgumentException.class, () -> new StripeLayout(1, 4096));
+        assertThrows(IllegalArgumentException.class, () -> new StripeLayout(2, 4096));
+    }
+}
@@ -0,0 +1,129 @@
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pk.wieik.raidjavafx.ArrayCli;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.ParityScrubber;
+import pk.wieik.raidjavafx.RaidArray;
+import pk.wieik.raidjavafx.StripeLayout;
+import pk.wieik.raidjavafx.WriteIntentBitmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteIntentBitmapTest {
+
+    private Path dir;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("raid5");
+    }
+
+    @AfterMethod
+    public void deleteDirectory() throws IOException {
+        Fixtures.deleteRecursively(dir);
+    }
+
+    @Test
+    public void test_resync_after_torn_write_covers_dirty_region_only() throws IOException {
+        Path file = dir.resolve("intent.bitmap");
+        StripeLayout layout = new StripeLayout(4, 32);
+        byte[] data = Fixtures.randomData(96 * 1000, 1);
+        RaidArray array = RaidArray.create(layout, data.length);
+        array.save(data);
+
+        try (WriteIntentBitmap intent = WriteIntentBitmap.open(file, 16)) {
+            array.setWriteIntent(intent);
+            array.write(5000, Fixtures.randomData(300, 2));
+            array.syncWriteIntent();
+            assertTrue(intent.isClean());
+
+            // A write to stripe 500 that dies after the data chunk, before the parity chunk
+            intent.startWrite(500);
+            array.getDisc(StripeLayout.dataDisc(layout.parityDisc(500), 1)).writeBytes(500 * 32 + 4, new byte[]{1, 2, 3}, 0, 3);
+        }
+        assertEquals(1, new ParityScrubber(array, 0, false).scrub());
+
+        try (WriteIntentBitmap intent = WriteIntentBitmap.open(file, 64)) {
+            assertEquals(16, intent.getRegionStripes());
+            assertEquals(1, intent.dirtyRegions());
+            assertEquals(16, intent.resync(Fixtures.discsOf(array), layout));
+            assertTrue(intent.isClean());
+        }
+        assertEquals(0, new ParityScrubber(array, 0, false).scrub());
+        try (WriteIntentBitmap intent = WriteIntentBitmap.open(file, 16)) {
+            assertTrue(intent.isClean());
+        }
+    }
+
+    @Test
+    public void test_bits_are_cleared_lazily() throws IOException {
+        Path file = dir.resolve("intent.bitmap");
+        StripeLayout layout = new StripeLayout(5, 64);
+        RaidArray array = RaidArray.create(layout, 256 * 400);
+        array.save(Fixtures.randomData(256 * 400, 3));
+
+        try (WriteIntentBitmap intent = WriteIntentBitmap.open(file, 8)) {
+            array.setWriteIntent(intent);
+            array.write(0, Fixtures.randomData(256 * 20, 4));
+            array.write(256 * 300, Fixtures.randomData(10, 5));
+            // Done writing, but still dirty until the next sync
+            assertEquals(4, intent.dirtyRegions());
+            try (WriteIntentBitmap reopened = WriteIntentBitmap.open(file, 8)) {
+                assertEquals(4, reopened.dirtyRegions());
+            }
+
+            // A write in progress keeps its region dirty
+            intent.startWrite(100);
+            array.syncWriteIntent();
+            assertEquals(1, intent.dirtyRegions());
+            intent.endWrite(100);
+            array.syncWriteIntent();
+            assertTrue(intent.isClean());
+        }
+        try (WriteIntentBitmap reopened = WriteIntentBitmap.open(file, 8)) {
+            assertTrue(reopened.isClean());
+        }
+    }
+
+    @Test
+    public void test_cli_resyncs_before_using_the_array() throws IOException {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream errStream = new PrintStream(err, true);
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true);
+        byte[] data = Fixtures.randomData(64 * 3 * 500, 6);
+
+        assertEquals(0, ArrayCli.run(new String[]{"create", dir.toString(), "--discs", "4", "--chunk-size", "64"},
+                new ByteArrayInputStream(new byte[0]), out, errStream));
+        assertEquals(0, ArrayCli.run(new String[]{"write", dir.toString()},
+                new ByteArrayInputStream(data), out, errStream));
+        try (WriteIntentBitmap intent = WriteIntentBitmap.open(WriteIntentBitmap.file(dir), 64)) {
+            assertTrue(intent.isClean());
+            // Interrupted write: intent recorded, parity chunk torn
+            intent.startWrite(200);
+        }
+        StripeLayout layout = new StripeLayout(4, 64);
+        try (FileChannel parity = FileChannel.open(
+                Cluster.discFile(dir, layout.parityDisc(200)), StandardOpenOption.WRITE)) {
+            parity.write(ByteBuffer.wrap(new byte[]{9, 9, 9}), 200 * 64);
+        }
+
+        err.reset();
+        assertEquals(0, ArrayCli.run(new String[]{"verify", dir.toString()},
+                new ByteArrayInputStream(new byte[0]), out, errStream));
+        assertTrue(err.toString().contains("Resynced 64 stripes"), err.toString());
+        try (WriteIntentBitmap intent = WriteIntentBitmap.open(WriteIntentBitmap.file(dir), 64)) {
+            assertTrue(intent.isClean());
+        }
+    }
+}
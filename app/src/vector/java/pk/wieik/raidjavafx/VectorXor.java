@@ -0,0 +1,52 @@
+package pk.wieik.raidjavafx;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the ParityEngine kernels. Lives outside the default source root so only
+ * builds with {@code -Draid.vector} compile against the incubator module; ParityEngine
+ * instantiates it by name once it has checked that the module is present.
+ */
+final class VectorXor implements XorKernels {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    VectorXor() {
+    }
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void xor(long[] src, int srcOffset, long[] dst, int dstOffset, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            LongVector a = LongVector.fromArray(SPECIES, src, srcOffset + i);
+            LongVector b = LongVector.fromArray(SPECIES, dst, dstOffset + i);
+            b.lanewise(VectorOperators.XOR, a).intoArray(dst, dstOffset + i);
+        }
+        // Tail shorter than one vector
+        for (; i < length; i++) {
+            dst[dstOffset + i] ^= src[srcOffset + i];
+        }
+    }
+
+    @Override
+    public void xorMasked(long[] src, int srcOffset, long[] mask, long[] dst, int dstOffset, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            LongVector a = LongVector.fromArray(SPECIES, src, srcOffset + i);
+            LongVector m = LongVector.fromArray(SPECIES, mask, dstOffset + i);
+            LongVector b = LongVector.fromArray(SPECIES, dst, dstOffset + i);
+            b.lanewise(VectorOperators.XOR, a.lanewise(VectorOperators.AND, m)).intoArray(dst, dstOffset + i);
+        }
+        for (; i < length; i++) {
+            dst[dstOffset + i] ^= src[srcOffset + i] & mask[dstOffset + i];
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package pk.wieik.raidjavafx.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pk.wieik.raidjavafx.Bit;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The original List&lt;Bit&gt; operations, as a baseline for the packed layout. One Bit object per
+ * bit limits the sizes to a million bits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ListClusterBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int dataBits;
+
+    @Param({"3", "5", "9"})
+    public int numberOfDiscs;
+
+    private List<Bit> data;
+    private List<List<Bit>> discs;
+    private Disc damagedDisc;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        data = new ArrayList<>(dataBits);
+        for (int i = 0; i < dataBits; i++) {
+            data.add(new Bit(random.nextBoolean()));
+        }
+        discs = save();
+        damagedDisc = new Disc(numberOfDiscs / 2);
+    }
+
+    private List<List<Bit>> save() {
+        List<List<Bit>> saved = Cluster.createDiscList(new Disc(numberOfDiscs, ""));
+        // saveData pads its input list, so give it a copy
+        Cluster.saveData(new ArrayList<>(data), saved);
+        return saved;
+    }
+
+    @Benchmark
+    public List<List<Bit>> saveData() {
+        return save();
+    }
+
+    @Benchmark
+    public List<List<Bit>> sumControl() {
+        Cluster.sumControl(discs);
+        return discs;
+    }
+
+    @Benchmark
+    public List<Bit> readData() {
+        return Cluster.readData(discs, dataBits);
+    }
+
+    @Benchmark
+    public List<Bit> recoverData() {
+        return Cluster.recoverData(discs, numberOfDiscs / 2, dataBits);
+    }
+
+    @Benchmark
+    public List<List<Bit>> simulateDamage() {
+        List<List<Bit>> damaged = new ArrayList<>(discs);
+        Cluster.simulateDamage(damagedDisc, damaged);
+        return damaged;
+    }
+}
@@ -0,0 +1,90 @@
+package pk.wieik.raidjavafx.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.PackedDisc;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster operations on the packed bit layout used by the application, from a thousand to a
+ * hundred million data bits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PackedClusterBenchmark {
+
+    @Param({"1000", "100000", "10000000", "100000000"})
+    public long dataBits;
+
+    @Param({"3", "5", "9"})
+    public int numberOfDiscs;
+
+    private PackedDisc data;
+    private PackedDisc[] discs;
+    private PackedDisc[] damaged;
+    private Disc damagedDisc;
+
+    @Setup
+    public void setUp() {
+        data = randomBits(dataBits, 42);
+        discs = Cluster.createDiscArray(new Disc(numberOfDiscs, ""));
+        Cluster.saveData(data, discs);
+        damaged = new PackedDisc[numberOfDiscs];
+        damagedDisc = new Disc(numberOfDiscs / 2);
+    }
+
+    static PackedDisc randomBits(long bits, long seed) {
+        byte[] bytes = new byte[(int) (bits / 8)];
+        new Random(seed).nextBytes(bytes);
+        PackedDisc packed = new PackedDisc(bits);
+        packed.writeBytes(0, bytes, 0, bytes.length);
+        return packed;
+    }
+
+    @Benchmark
+    public PackedDisc[] saveData() {
+        Cluster.saveData(data, discs);
+        return discs;
+    }
+
+    @Benchmark
+    public PackedDisc[] sumControl() {
+        Cluster.sumControl(discs);
+        return discs;
+    }
+
+    @Benchmark
+    public PackedDisc readData() {
+        return Cluster.readData(discs, dataBits);
+    }
+
+    @Benchmark
+    public PackedDisc recoverData() {
+        return Cluster.recoverData(discs, numberOfDiscs / 2, dataBits);
+    }
+
+    @Benchmark
+    public PackedDisc[] simulateDamage() {
+        // Damage a copy of the array so every invocation starts from the healthy discs
+        System.arraycopy(discs, 0, damaged, 0, numberOfDiscs);
+        Cluster.simulateDamage(damagedDisc, damaged);
+        return damaged;
+    }
+}
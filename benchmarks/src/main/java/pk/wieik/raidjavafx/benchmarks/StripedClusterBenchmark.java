@@ -0,0 +1,101 @@
+package pk.wieik.raidjavafx.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pk.wieik.raidjavafx.Cluster;
+import pk.wieik.raidjavafx.Disc;
+import pk.wieik.raidjavafx.DiscStore;
+import pk.wieik.raidjavafx.PackedDisc;
+import pk.wieik.raidjavafx.StripeLayout;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster operations on the striped layout, with the same data sizes in bits as the packed
+ * benchmark. Small writes and range reads show the cost of touching a single stripe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class StripedClusterBenchmark {
+
+    @Param({"1000", "100000", "10000000", "100000000"})
+    public long dataBits;
+
+    @Param({"3", "5", "9"})
+    public int numberOfDiscs;
+
+    @Param({"65536"})
+    public int chunkSize;
+
+    private StripeLayout layout;
+    private byte[] data;
+    private byte[] block;
+    private PackedDisc[] discs;
+    private long middle;
+
+    @Setup
+    public void setUp() {
+        // Chunks no larger than the data, so small volumes are not mostly padding
+        layout = new StripeLayout(numberOfDiscs, (int) Math.min(chunkSize, Math.max(8, dataBits / 8 / 8 * 8)));
+        data = new byte[(int) (dataBits / 8)];
+        new Random(42).nextBytes(data);
+        block = new byte[Math.min(4096, data.length)];
+        discs = Cluster.createDiscArray(layout, data.length);
+        Cluster.saveData(data, discs, layout);
+        middle = (data.length - block.length) / 2;
+    }
+
+    @Benchmark
+    public DiscStore[] saveData() {
+        Cluster.saveData(data, discs, layout);
+        return discs;
+    }
+
+    @Benchmark
+    public DiscStore[] sumControl() {
+        Cluster.sumControl(discs, layout);
+        return discs;
+    }
+
+    @Benchmark
+    public byte[] readData() {
+        return Cluster.readData(discs, layout, data.length);
+    }
+
+    @Benchmark
+    public byte[] readRange() {
+        return Cluster.read(discs, layout, middle, block.length);
+    }
+
+    @Benchmark
+    public DiscStore[] writeRange() {
+        Cluster.write(discs, layout, middle, block);
+        return discs;
+    }
+
+    @Benchmark
+    public DiscStore recoverData() {
+        return Cluster.recoverData(discs, numberOfDiscs / 2, layout);
+    }
+
+    @Benchmark
+    public DiscStore[] simulateDamage() {
+        Cluster.simulateDamage(new Disc(numberOfDiscs / 2), discs, false);
+        discs[numberOfDiscs / 2].setFailed(false);
+        return discs;
+    }
+}